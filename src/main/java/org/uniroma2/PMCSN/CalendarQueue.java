@@ -0,0 +1,196 @@
+package org.uniroma2.PMCSN;
+
+import java.util.Arrays;
+
+/**
+ * Lista degli eventi futuri realizzata come calendar queue (R. Brown, CACM 1988).
+ * <p>
+ * Il tempo è diviso in "giorni" di ampiezza width; ogni giorno cade nel bucket
+ * day % nBuckets, che tiene i propri eventi in una lista ordinata per
+ * (tempo, slot). La ricerca del minimo riparte dal giorno dell'ultimo minimo,
+ * quindi con molti eventi pendenti quasi equispaziati ogni operazione costa
+ * O(1) ammortizzato. Numero di bucket e ampiezza vengono ricalcolati quando il
+ * numero di eventi raddoppia o si dimezza.
+ */
+public class CalendarQueue implements EventSet {
+    private static final int MIN_BUCKETS = 2;
+
+    private double[] time = new double[64];   // tempo programmato per ogni slot
+    private int[] next = new int[64];         // successivo nel bucket, -1 se ultimo
+    private int[] prev = new int[64];         // precedente nel bucket, -1 se primo
+    private int[] bucketOf = new int[64];     // bucket dello slot, -1 se inattivo
+    private int[] base = new int[64];         // primo slot del nodo proprietario
+    private Node[] owner = new Node[64];      // nodo proprietario dello slot
+    private int slots = 0;                    // slot registrati
+    private int size = 0;                     // eventi attivi
+
+    private int[] bucket;                     // testa di ogni bucket, -1 se vuoto
+    private double width = 1.0;               // ampiezza di un giorno
+    private long lastDay = 0;                 // giorno da cui riparte la ricerca
+    private int minId = -1;                   // minimo in cache, -1 se da ricalcolare
+
+    public CalendarQueue() {
+        bucket = new int[MIN_BUCKETS];
+        Arrays.fill(bucket, -1);
+    }
+
+    @Override
+    public int register(Node node, int n) {
+        int first = slots;
+        ensureCapacity(slots + n);
+        for (int i = first; i < first + n; i++) {
+            bucketOf[i] = -1;
+            base[i] = first;
+            owner[i] = node;
+        }
+        slots += n;
+        return first;
+    }
+
+    @Override
+    public void schedule(int id, double t) {
+        if (bucketOf[id] >= 0) unlink(id);
+        else size++;
+        time[id] = t;
+        link(id);
+
+        long d = day(t);
+        if (d < lastDay) lastDay = d;     // evento nel passato del calendario
+        if (minId == id) minId = -1;
+        else if (minId >= 0 && before(id, minId)) minId = id;
+
+        if (size > 2 * bucket.length) resize(2 * bucket.length);
+    }
+
+    @Override
+    public void cancel(int id) {
+        if (bucketOf[id] < 0) return;
+        unlink(id);
+        size--;
+        if (minId == id) minId = -1;
+
+        if (bucket.length > MIN_BUCKETS && size < bucket.length / 2) resize(bucket.length / 2);
+    }
+
+    @Override
+    public boolean isScheduled(int id) {
+        return bucketOf[id] >= 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public double peekTime() {
+        int id = findMin();
+        return id >= 0 ? time[id] : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public Node peekNode() {
+        int id = findMin();
+        return id >= 0 ? owner[id] : null;
+    }
+
+    @Override
+    public int peekEvent() {
+        int id = findMin();
+        return id - base[id];
+    }
+
+    private int findMin() {
+        if (minId >= 0 || size == 0) return minId;
+
+        // scorre al più un "anno" di giorni a partire dall'ultimo minimo
+        int mask = bucket.length - 1;
+        for (long d = lastDay; d < lastDay + bucket.length; d++) {
+            int h = bucket[(int) (d & mask)];
+            if (h >= 0 && day(time[h]) <= d) {
+                lastDay = d;
+                minId = h;
+                return h;
+            }
+        }
+
+        // nessun evento nell'anno corrente: ricerca diretta sulle teste
+        int best = -1;
+        for (int h : bucket) {
+            if (h >= 0 && (best < 0 || before(h, best))) best = h;
+        }
+        lastDay = day(time[best]);
+        minId = best;
+        return best;
+    }
+
+    private boolean before(int a, int b) {
+        return time[a] < time[b] || (time[a] == time[b] && a < b);
+    }
+
+    private long day(double t) {
+        return (long) Math.floor(t / width);
+    }
+
+    // Inserisce id nel suo bucket mantenendo l'ordine (tempo, slot)
+    private void link(int id) {
+        int b = (int) (day(time[id]) & (bucket.length - 1));
+        int p = -1;
+        int c = bucket[b];
+        while (c >= 0 && before(c, id)) {
+            p = c;
+            c = next[c];
+        }
+        prev[id] = p;
+        next[id] = c;
+        if (p >= 0) next[p] = id;
+        else bucket[b] = id;
+        if (c >= 0) prev[c] = id;
+        bucketOf[id] = b;
+    }
+
+    private void unlink(int id) {
+        int p = prev[id];
+        int n = next[id];
+        if (p >= 0) next[p] = n;
+        else bucket[bucketOf[id]] = n;
+        if (n >= 0) prev[n] = p;
+        bucketOf[id] = -1;
+    }
+
+    // Ricostruisce il calendario con nBuckets bucket e ampiezza stimata
+    // dalla separazione media degli eventi pendenti
+    private void resize(int nBuckets) {
+        int[] ids = new int[size];
+        int k = 0;
+        double tmin = Double.POSITIVE_INFINITY;
+        double tmax = Double.NEGATIVE_INFINITY;
+        for (int h : bucket) {
+            for (int c = h; c >= 0; c = next[c]) {
+                ids[k++] = c;
+                tmin = Math.min(tmin, time[c]);
+                tmax = Math.max(tmax, time[c]);
+            }
+        }
+
+        if (size > 1 && tmax > tmin) {
+            width = 3.0 * (tmax - tmin) / (size - 1);
+        }
+        bucket = new int[nBuckets];
+        Arrays.fill(bucket, -1);
+        for (int id : ids) link(id);
+        lastDay = size > 0 ? day(tmin) : 0;
+        minId = -1;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= time.length) return;
+        int cap = Math.max(n, 2 * time.length);
+        time = Arrays.copyOf(time, cap);
+        next = Arrays.copyOf(next, cap);
+        prev = Arrays.copyOf(prev, cap);
+        bucketOf = Arrays.copyOf(bucketOf, cap);
+        base = Arrays.copyOf(base, cap);
+        owner = Arrays.copyOf(owner, cap);
+    }
+}
@@ -0,0 +1,75 @@
+package org.uniroma2.PMCSN;
+
+/**
+ * Canale fra due processi logici della simulazione conservativa.
+ * <p>
+ * Il mittente vi accoda i job instradati (tempo di arrivo, posti richiesti)
+ * e ne avanza l'orizzonte: la promessa che nessun messaggio futuro avrà un
+ * tempo minore o uguale all'orizzonte (null message di Chandy–Misra–Bryant).
+ * Il destinatario può quindi processare senza rischi tutti i propri eventi
+ * con tempo non superiore all'orizzonte.
+ */
+public final class Channel {
+    private final RequestQueue messages = new RequestQueue(16);
+    private final MsqEvent delivery = new MsqEvent();   // riusato per consegnare al nodo
+    private double horizon = Double.NEGATIVE_INFINITY;
+
+    /** Accoda un job per il destinatario. */
+    public synchronized void send(double t, int postiRichiesti) {
+        messages.add(t, postiRichiesti);
+        notifyAll();
+    }
+
+    /** Null message: nessun messaggio futuro avrà tempo minore o uguale a bound. */
+    public synchronized void advance(double bound) {
+        if (bound > horizon) {
+            horizon = bound;
+            notifyAll();
+        }
+    }
+
+    /** Il mittente ha terminato: sblocca definitivamente il destinatario. */
+    public void close() {
+        advance(Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Attende che l'orizzonte raggiunga t, poi consegna a node tutti i
+     * messaggi ricevuti.
+     *
+     * @return l'orizzonte corrente (≥ t)
+     */
+    public synchronized double receive(Node node, double t) throws InterruptedException {
+        while (horizon < t) {
+            wait();
+        }
+        while (!messages.isEmpty()) {
+            delivery.t = messages.peekTime();
+            delivery.postiRichiesti = messages.peekPosti();
+            messages.poll();
+            node.setArrivalEvent(delivery);
+        }
+        return horizon;
+    }
+
+    /**
+     * Versione non bloccante per l'esecuzione ottimistica: sposta in inbox
+     * i messaggi ricevuti.
+     *
+     * @return l'orizzonte corrente
+     */
+    public synchronized double drainTo(RequestQueue inbox) {
+        while (!messages.isEmpty()) {
+            inbox.add(messages.peekTime(), messages.peekPosti());
+            messages.poll();
+        }
+        return horizon;
+    }
+
+    /** Attende un nuovo messaggio o un orizzonte oltre seen. */
+    public synchronized void awaitBeyond(double seen) throws InterruptedException {
+        while (messages.isEmpty() && horizon <= seen) {
+            wait();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.uniroma2.PMCSN;
+
+/**
+ * Nodo il cui stato può essere salvato e ripristinato, per l'esecuzione
+ * ottimistica (Time Warp) con rollback.
+ */
+public interface Checkpointable<S> {
+
+    /** Copia dello stato corrente del nodo (contatori, aree, eventi, semi RNG). */
+    S saveState();
+
+    /** Ripristina uno stato salvato, che resta riutilizzabile per altri rollback. */
+    void restoreState(S state);
+}
@@ -0,0 +1,76 @@
+package org.uniroma2.PMCSN.Estimators;
+
+import org.uniroma2.PMCSN.Utils.OutputAnalysis;
+
+/**
+ * Uno stimatore della varianza per ciascuna metrica globale (ETs, ENs,
+ * ETq, ENq, Rho), alimentati con le medie dei sotto-batch del run ad
+ * orizzonte infinito; batch di m sotto-batch. Le metriche per job e quelle
+ * per tempo arrivano separatamente, da sotto-batch di job e di tempo.
+ */
+public final class EstimatorSet implements OutputAnalysis {
+    private final VarianceEstimator.Type type;
+    private final int m;
+    private final VarianceEstimator[] metrics = new VarianceEstimator[Metric.values().length];
+
+    public EstimatorSet(VarianceEstimator.Type type, int m) {
+        this.type = type;
+        this.m = m;
+        for (int k = 0; k < metrics.length; k++) {
+            metrics[k] = VarianceEstimator.create(type, m);
+        }
+    }
+
+    /** Aggiunge le medie di un sotto-batch di job. */
+    public void insertPerJob(double eTs, double eTq) {
+        metrics[Metric.ETS.ordinal()].accept(eTs);
+        metrics[Metric.ETQ.ordinal()].accept(eTq);
+    }
+
+    /** Aggiunge le medie di un sotto-batch di tempo. */
+    public void insertPerTime(double eNs, double eNq, double rho) {
+        metrics[Metric.ENS.ordinal()].accept(eNs);
+        metrics[Metric.ENQ.ordinal()].accept(eNq);
+        metrics[Metric.RHO.ordinal()].accept(rho);
+    }
+
+    @Override
+    public long size() {
+        return Math.min(metrics[Metric.ETS.ordinal()].count(), metrics[Metric.ENS.ordinal()].count()) / m;
+    }
+
+    @Override
+    public double getMean(Metric metric) {
+        return metrics[metric.ordinal()].getMean();
+    }
+
+    @Override
+    public double halfWidth(Metric metric, double alpha) {
+        return metrics[metric.ordinal()].halfWidth(alpha);
+    }
+
+    @Override
+    public void printAllConfidenceIntervals(double alpha) {
+        for (Metric metric : Metric.values()) {
+            try {
+                double mean   = getMean(metric);
+                double margin = halfWidth(metric, alpha);
+                System.out.printf(
+                        "%-5s : %.4f ± %.4f → IC%.0f%% = [%.4f, %.4f]%n",
+                        metric.getLabel(), mean, margin, (1 - alpha) * 100,
+                        mean - margin, mean + margin
+                );
+            } catch (IllegalArgumentException ex) {
+                System.out.printf("%-5s : dati insufficienti per IC%n", metric.getLabel());
+            }
+        }
+    }
+
+    /** Stampa lo stimatore usato, la dimensione dei batch e i gradi di libertà. */
+    public void printOutcome(int subJobs, double subInterval) {
+        System.out.printf("Stimatore %s: batch di %d job / %.2f unità di tempo (gdl %.1f per job, %.1f per tempo)%n",
+                type, m * subJobs, m * subInterval,
+                metrics[Metric.ETS.ordinal()].getDegreesOfFreedom(),
+                metrics[Metric.ENS.ordinal()].getDegreesOfFreedom());
+    }
+}
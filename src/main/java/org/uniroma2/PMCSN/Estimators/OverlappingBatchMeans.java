@@ -0,0 +1,74 @@
+package org.uniroma2.PMCSN.Estimators;
+
+import org.uniroma2.PMCSN.Utils.Welford;
+
+/**
+ * Overlapping batch means (Meketon e Schmeiser, 1984): usa tutti gli
+ * n − m + 1 batch di m osservazioni consecutive,
+ * <pre>  Var(media) = m / ((n − m + 1)(n − m)) · Σ_j (Ȳ_j(m) − Ȳ_n)²</pre>
+ * con circa 1.5·(n/m − 1) gradi di libertà: a parità di n e di m la stima
+ * della varianza ha varianza circa 2/3 di quella dei batch non sovrapposti.
+ * <p>
+ * Tiene in memoria solo le ultime m osservazioni (finestra scorrevole);
+ * la somma della finestra viene ricalcolata a ogni giro per non accumulare
+ * errori di arrotondamento.
+ */
+public final class OverlappingBatchMeans implements VarianceEstimator {
+    private final int m;
+    private final double[] window;
+    private int next = 0;                         // posizione della prossima osservazione
+    private double windowSum = 0.0;
+    private final Welford all = new Welford();    // Ȳ_n
+    private final Welford batches = new Welford(); // medie Ȳ_j(m) delle finestre complete
+
+    public OverlappingBatchMeans(int m) {
+        if (m < 1) {
+            throw new IllegalArgumentException("Dimensione dei batch non valida: " + m);
+        }
+        this.m = m;
+        this.window = new double[m];
+    }
+
+    @Override
+    public void accept(double x) {
+        windowSum += x - window[next];
+        window[next] = x;
+        if (++next == m) {
+            next = 0;
+            windowSum = 0.0;
+            for (double v : window) windowSum += v;
+        }
+        all.accept(x);
+        if (all.count() >= m) {
+            batches.accept(windowSum / m);
+        }
+    }
+
+    @Override
+    public long count() {
+        return all.count();
+    }
+
+    @Override
+    public double getMean() {
+        return all.getMean();
+    }
+
+    @Override
+    public double getVarianceOfMean() {
+        long n = all.count();
+        long b = batches.count();                 // n − m + 1
+        if (n <= m) {
+            return Double.NaN;
+        }
+        // Σ_j (Ȳ_j − Ȳ_n)² dalla dispersione delle medie attorno alla loro media
+        double d = batches.getMean() - all.getMean();
+        double ss = (b > 1 ? batches.getSampleVariance() * (b - 1) : 0.0) + b * d * d;
+        return m * ss / ((double) b * (n - m));
+    }
+
+    @Override
+    public double getDegreesOfFreedom() {
+        return 1.5 * ((double) all.count() / m - 1.0);
+    }
+}
@@ -0,0 +1,81 @@
+package org.uniroma2.PMCSN.Estimators;
+
+import org.uniroma2.PMCSN.Utils.Welford;
+
+/**
+ * Serie temporale standardizzata (Schruben, 1983), stimatore dell'area a
+ * batch combinato con i batch means.
+ * <p>
+ * Per un batch di m osservazioni con media Ȳ e somme parziali S_j l'area
+ * <pre>  A = 12 / (m³ − m) · (Σ_{j=1..m} (j·Ȳ − S_j))²</pre>
+ * stima il parametro di varianza σ² con 1 grado di libertà, indipendente
+ * (asintoticamente) dalla media del batch. Con k batch si fondono le k
+ * aree e la stima batch means m·S²(medie):
+ * <pre>  σ² = (Σ A_i + (k − 1)·m·S²) / (2k − 1),  Var(media) = σ² / (k·m)</pre>
+ * con 2k − 1 gradi di libertà invece dei k − 1 dei soli batch means.
+ * Ogni batch si aggiorna in O(1) tenendo la somma e la somma delle somme
+ * parziali, calcolate rispetto alla prima osservazione del batch (A non
+ * dipende da una traslazione) per limitare la cancellazione.
+ */
+public final class StandardizedTimeSeries implements VarianceEstimator {
+    private final int m;
+    private final double scale;                   // 12 / (m³ − m)
+    private final Welford batches = new Welford();
+    private double areas = 0.0;                   // Σ A_i
+    private double origin;
+    private double sum = 0.0;                     // S_j
+    private double partialSums = 0.0;             // Σ S_j
+    private int inBatch = 0;
+
+    public StandardizedTimeSeries(int m) {
+        if (m < 2) {
+            throw new IllegalArgumentException("Dimensione dei batch non valida: " + m);
+        }
+        this.m = m;
+        this.scale = 12.0 / ((double) m * m * m - m);
+    }
+
+    @Override
+    public void accept(double x) {
+        if (inBatch == 0) {
+            origin = x;
+        }
+        sum += x - origin;
+        partialSums += sum;
+        if (++inBatch < m) {
+            return;
+        }
+        double mean = sum / m;
+        double area = mean * m * (m + 1) / 2.0 - partialSums;
+        areas += scale * area * area;
+        batches.accept(origin + mean);
+        sum = 0.0;
+        partialSums = 0.0;
+        inBatch = 0;
+    }
+
+    @Override
+    public long count() {
+        return batches.count() * m;
+    }
+
+    @Override
+    public double getMean() {
+        return batches.getMean();
+    }
+
+    @Override
+    public double getVarianceOfMean() {
+        long k = batches.count();
+        if (k < 2) {
+            return Double.NaN;
+        }
+        double sigma2 = (areas + (k - 1) * m * batches.getSampleVariance()) / (2 * k - 1);
+        return sigma2 / (k * m);
+    }
+
+    @Override
+    public double getDegreesOfFreedom() {
+        return 2 * batches.count() - 1;
+    }
+}
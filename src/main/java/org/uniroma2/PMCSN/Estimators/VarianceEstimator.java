@@ -0,0 +1,63 @@
+package org.uniroma2.PMCSN.Estimators;
+
+import org.uniroma2.PMCSN.Utils.StudentQuantiles;
+
+/**
+ * Stima, in streaming, della varianza della media campionaria di una serie
+ * stazionaria correlata (ad es. le medie di sotto-batch di un run ad
+ * orizzonte infinito), da cui l'intervallo di confidenza della media.
+ * <p>
+ * Ogni stimatore lavora con batch di m osservazioni consecutive e usa
+ * memoria indipendente dalla lunghezza della serie.
+ */
+public interface VarianceEstimator {
+
+    /** Stimatori disponibili. */
+    enum Type {
+        BATCH_MEANS,                 // batch means non sovrapposti, calcolati da ReplicationStats
+        OVERLAPPING_BATCH_MEANS,     // tutti i batch di m osservazioni consecutive
+        STANDARDIZED_TIME_SERIES     // area della serie standardizzata più batch means
+    }
+
+    /**
+     * Stimatore sui sotto-batch per type; BATCH_MEANS non ne ha bisogno,
+     * perché usa direttamente i batch del ciclo di simulazione.
+     */
+    static VarianceEstimator create(Type type, int m) {
+        return switch (type) {
+            case BATCH_MEANS -> throw new IllegalArgumentException(
+                    "Batch means usa ReplicationStats, non i sotto-batch");
+            case OVERLAPPING_BATCH_MEANS -> new OverlappingBatchMeans(m);
+            case STANDARDIZED_TIME_SERIES -> new StandardizedTimeSeries(m);
+        };
+    }
+
+    /** Aggiunge un'osservazione della serie. */
+    void accept(double x);
+
+    /** Osservazioni usate dalla stima. */
+    long count();
+
+    /** Media delle osservazioni usate. */
+    double getMean();
+
+    /** Stima di Var(media), NaN se i dati non bastano. */
+    double getVarianceOfMean();
+
+    /** Gradi di libertà della t di Student per l'intervallo. */
+    double getDegreesOfFreedom();
+
+    /**
+     * Semiampiezza dell'intervallo (1–α)×100% della media.
+     *
+     * @throws IllegalArgumentException se i dati non bastano per una stima
+     */
+    default double halfWidth(double alpha) {
+        double var = getVarianceOfMean();
+        long df = (long) Math.floor(getDegreesOfFreedom());
+        if (!(var >= 0.0) || df < 1) {
+            throw new IllegalArgumentException("Dati insufficienti per l'intervallo.");
+        }
+        return StudentQuantiles.idfStudent(df, 1 - alpha / 2.0) * Math.sqrt(var);
+    }
+}
@@ -0,0 +1,132 @@
+package org.uniroma2.PMCSN;
+
+import java.util.Arrays;
+
+/**
+ * Lista degli eventi futuri realizzata come heap binario indicizzato.
+ * <p>
+ * Il prossimo evento globale si legge in O(1), mentre programmare,
+ * riprogrammare (decrease/increase-key) o cancellare un evento costa O(log n).
+ */
+public class EventHeap implements EventSet {
+    private double[] time = new double[64];   // tempo programmato per ogni slot
+    private int[] pos = new int[64];          // posizione nello heap, -1 se inattivo
+    private int[] base = new int[64];         // primo slot del nodo proprietario
+    private Node[] owner = new Node[64];      // nodo proprietario dello slot
+    private int[] heap = new int[64];         // heap[k] = slot in posizione k
+    private int slots = 0;                    // slot registrati
+    private int size = 0;                     // eventi attivi
+
+    @Override
+    public int register(Node node, int n) {
+        int first = slots;
+        ensureCapacity(slots + n);
+        for (int i = first; i < first + n; i++) {
+            pos[i] = -1;
+            base[i] = first;
+            owner[i] = node;
+        }
+        slots += n;
+        return first;
+    }
+
+    @Override
+    public void schedule(int id, double t) {
+        int k = pos[id];
+        time[id] = t;
+        if (k < 0) {
+            k = size++;
+            heap[k] = id;
+            pos[id] = k;
+            siftUp(k);
+        } else if (!siftUp(k)) {
+            siftDown(k);
+        }
+    }
+
+    @Override
+    public void cancel(int id) {
+        int k = pos[id];
+        if (k < 0) return;
+        pos[id] = -1;
+        size--;
+        if (k == size) return;
+        int last = heap[size];
+        heap[k] = last;
+        pos[last] = k;
+        if (!siftUp(k)) siftDown(k);
+    }
+
+    @Override
+    public boolean isScheduled(int id) {
+        return pos[id] >= 0;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public double peekTime() {
+        return size > 0 ? time[heap[0]] : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public Node peekNode() {
+        return size > 0 ? owner[heap[0]] : null;
+    }
+
+    @Override
+    public int peekEvent() {
+        int id = heap[0];
+        return id - base[id];
+    }
+
+    private boolean less(int a, int b) {
+        return time[a] < time[b] || (time[a] == time[b] && a < b);
+    }
+
+    private boolean siftUp(int k) {
+        int id = heap[k];
+        int start = k;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            int p = heap[parent];
+            if (!less(id, p)) break;
+            heap[k] = p;
+            pos[p] = k;
+            k = parent;
+        }
+        heap[k] = id;
+        pos[id] = k;
+        return k != start;
+    }
+
+    private void siftDown(int k) {
+        int id = heap[k];
+        int half = size >>> 1;
+        while (k < half) {
+            int child = 2 * k + 1;
+            int right = child + 1;
+            if (right < size && less(heap[right], heap[child])) child = right;
+            int c = heap[child];
+            if (!less(c, id)) break;
+            heap[k] = c;
+            pos[c] = k;
+            k = child;
+        }
+        heap[k] = id;
+        pos[id] = k;
+    }
+
+    private void ensureCapacity(int n) {
+        if (n <= time.length) return;
+        int cap = Math.max(n, 2 * time.length);
+        time = Arrays.copyOf(time, cap);
+        pos = Arrays.copyOf(pos, cap);
+        base = Arrays.copyOf(base, cap);
+        owner = Arrays.copyOf(owner, cap);
+        heap = Arrays.copyOf(heap, cap);
+    }
+}
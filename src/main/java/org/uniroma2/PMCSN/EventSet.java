@@ -0,0 +1,49 @@
+package org.uniroma2.PMCSN;
+
+/**
+ * Lista degli eventi futuri condivisa da tutti i nodi di un sistema.
+ * <p>
+ * Ogni nodo registra un blocco di slot (ARRIVAL, server, ...) e vi programma
+ * i propri eventi; il sistema legge dalla testa il prossimo evento globale.
+ * A parità di tempo vince lo slot con indice minore, cioè il nodo registrato
+ * per primo e, al suo interno, lo slot più basso: lo stesso ordine della
+ * vecchia scansione lineare, quindi le implementazioni sono intercambiabili
+ * senza cambiare i risultati.
+ */
+public interface EventSet {
+
+    enum Type { HEAP, CALENDAR }
+
+    static EventSet create(Type type) {
+        return switch (type) {
+            case HEAP -> new EventHeap();
+            case CALENDAR -> new CalendarQueue();
+        };
+    }
+
+    /**
+     * Riserva n slot consecutivi per un nodo.
+     *
+     * @return indice del primo slot riservato
+     */
+    int register(Node node, int n);
+
+    /** Programma (o riprogramma) lo slot id al tempo t. */
+    void schedule(int id, double t);
+
+    /** Cancella l'evento dello slot id, se attivo. */
+    void cancel(int id);
+
+    boolean isScheduled(int id);
+
+    boolean isEmpty();
+
+    /** Tempo del prossimo evento, +inf se la lista è vuota. */
+    double peekTime();
+
+    /** Nodo proprietario del prossimo evento, null se la lista è vuota. */
+    Node peekNode();
+
+    /** Indice locale (relativo al nodo proprietario) del prossimo evento. */
+    int peekEvent();
+}
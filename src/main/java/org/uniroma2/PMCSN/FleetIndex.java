@@ -0,0 +1,51 @@
+package org.uniroma2.PMCSN;
+
+import java.util.BitSet;
+
+/**
+ * Indice dei veicoli di un centro ride-sharing per stato (in servizio o
+ * libero) e capacità residua. Per ogni soglia c tiene l'insieme dei veicoli
+ * con almeno c posti liberi: i veicoli idonei a una richiesta si trovano in
+ * ordine di indice, senza scandire l'intera flotta. Un cambio di capacità
+ * residua tocca al più maxCapacity insiemi.
+ */
+public class FleetIndex {
+    private final BitSet[] busy;   // busy[c]: veicoli in servizio con residua >= c
+    private final BitSet[] idle;   // idle[c]: veicoli liberi con residua >= c
+
+    public FleetIndex(int vehicles, int maxCapacity) {
+        busy = new BitSet[maxCapacity + 1];
+        idle = new BitSet[maxCapacity + 1];
+        for (int c = 1; c <= maxCapacity; c++) {
+            busy[c] = new BitSet(vehicles + 1);
+            idle[c] = new BitSet(vehicles + 1);
+        }
+    }
+
+    /** Inserisce il veicolo v con lo stato indicato. */
+    public void add(int v, boolean inService, int residual) {
+        BitSet[] sets = inService ? busy : idle;
+        for (int c = 1; c <= Math.min(residual, sets.length - 1); c++) sets[c].set(v);
+    }
+
+    /** Toglie il veicolo v, che si trovava nello stato indicato. */
+    public void remove(int v, boolean inService, int residual) {
+        BitSet[] sets = inService ? busy : idle;
+        for (int c = 1; c <= Math.min(residual, sets.length - 1); c++) sets[c].clear(v);
+    }
+
+    /** Primo veicolo in servizio ≥ from con almeno posti (≥ 1) posti liberi, -1 se nessuno. */
+    public int nextBusy(int posti, int from) {
+        return next(busy, posti, from);
+    }
+
+    /** Primo veicolo libero ≥ from con almeno posti posti liberi, -1 se nessuno. */
+    public int nextIdle(int posti, int from) {
+        return next(idle, posti, from);
+    }
+
+    private static int next(BitSet[] sets, int posti, int from) {
+        if (posti >= sets.length) return -1;
+        return sets[posti].nextSetBit(from);
+    }
+}
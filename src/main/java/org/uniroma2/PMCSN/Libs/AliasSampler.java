@@ -0,0 +1,84 @@
+package org.uniroma2.PMCSN.Libs;
+
+/* -------------------------------------------------------------------------
+ * Discrete random variate on 0, 1, ..., n-1 with given probabilities, by
+ * Walker's alias method (table construction as in M. D. Vose, "A Linear
+ * Algorithm for Generating Random Numbers with a Given Distribution",
+ * IEEE Trans. Software Engineering, 1991).
+ *
+ * The table is built once from the probability vector; each sample then
+ * takes one random number u and costs O(1) whatever n is: u * n picks a
+ * column i, and the fractional part selects i or its alias.
+ * -------------------------------------------------------------------------
+ */
+public final class AliasSampler {
+
+    private final double[] prob;      /* probability of keeping column i */
+    private final int[]    alias;     /* outcome used otherwise          */
+
+    public AliasSampler(double... p) {
+        /* ======================================================
+         * NOTE: p[i] >= 0.0, and the sum of p is 1.0 (rescaled
+         * if it differs because of rounding)
+         * ======================================================
+         */
+        int n = p.length;
+        double sum = 0.0;
+        for (double x : p) {
+            if (x < 0.0)
+                throw new IllegalArgumentException("negative probability: " + x);
+            sum += x;
+        }
+        if (n == 0 || sum <= 0.0)
+            throw new IllegalArgumentException("empty distribution");
+
+        prob  = new double[n];
+        alias = new int[n];
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int ns = 0, nl = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = p[i] * n / sum;
+            if (scaled[i] < 1.0)
+                small[ns++] = i;
+            else
+                large[nl++] = i;
+        }
+        while (ns > 0 && nl > 0) {
+            int s = small[--ns];
+            int l = large[--nl];
+            prob[s]  = scaled[s];
+            alias[s] = l;
+            scaled[l] = (scaled[l] + scaled[s]) - 1.0;
+            if (scaled[l] < 1.0)
+                small[ns++] = l;
+            else
+                large[nl++] = l;
+        }
+        while (nl > 0) {                       /* what is left is full, up to */
+            int l = large[--nl];               /* rounding                    */
+            prob[l]  = 1.0;
+            alias[l] = l;
+        }
+        while (ns > 0) {
+            int s = small[--ns];
+            prob[s]  = 1.0;
+            alias[s] = s;
+        }
+    }
+
+    public int sample(RandomSource r) {
+        return (sample(r.random()));
+    }
+
+    public int sample(double u) {
+        /* ===================================
+         * NOTE: 0.0 <= u < 1.0
+         * ===================================
+         */
+        double x = u * prob.length;
+        int i = Math.min((int) x, prob.length - 1);
+        return ((x - i) < prob[i] ? i : alias[i]);
+    }
+}
@@ -0,0 +1,63 @@
+package org.uniroma2.PMCSN.Libs;
+
+/* -------------------------------------------------------------------------
+ * Antithetic view of a RandomSource: every random number u of the wrapped
+ * generator is returned as 1 - u, stream by stream.  A run driven by the
+ * antithetic source of a generator seeded as another run is negatively
+ * correlated with it wherever variates are produced by inversion (monotone
+ * in u); the average of the pair has smaller variance than the average of
+ * two independent runs.
+ *
+ * Seeds, states and skips are those of the wrapped generator.
+ * -------------------------------------------------------------------------
+ */
+public final class AntitheticSource implements RandomSource {
+
+    private final RandomSource r;
+
+    public AntitheticSource(RandomSource r) {
+        this.r = r;
+    }
+
+    @Override
+    public double random() {
+        return (1.0 - r.random());
+    }
+
+    @Override
+    public void selectStream(int index) {
+        r.selectStream(index);
+    }
+
+    @Override
+    public void plantSeeds(long x) {
+        r.plantSeeds(x);
+    }
+
+    @Override
+    public void random(int s, double[] u, int from, int to) {
+        r.random(s, u, from, to);
+        for (int i = from; i < to; i++)
+            u[i] = 1.0 - u[i];
+    }
+
+    @Override
+    public void skip(int s, long n) {
+        r.skip(s, n);
+    }
+
+    @Override
+    public int stateSize() {
+        return r.stateSize();
+    }
+
+    @Override
+    public void getState(int s, long[] x) {
+        r.getState(s, x);
+    }
+
+    @Override
+    public void setState(int s, long[] x) {
+        r.setState(s, x);
+    }
+}
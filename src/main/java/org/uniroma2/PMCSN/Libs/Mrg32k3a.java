@@ -0,0 +1,198 @@
+package org.uniroma2.PMCSN.Libs;
+
+import java.util.Arrays;
+
+/* -------------------------------------------------------------------------
+ * Combined multiple recursive generator MRG32k3a with streams and
+ * substreams, after
+ *
+ *       "Good Parameters and Implementations for Combined Multiple
+ *                  Recursive Random Number Generators"
+ *       P. L'Ecuyer, Operations Research 47(1), 1999
+ *
+ *       "An Object-Oriented Random-Number Package with Many Long
+ *                      Streams and Substreams"
+ *       P. L'Ecuyer, R. Simard, E. J. Chen, W. D. Kelton,
+ *       Operations Research 50(6), 2002
+ *
+ * The period is about 2^191.  Streams start 2^127 numbers apart and there
+ * is no limit on their number: stream s is created the first time it is
+ * used.  plantSeeds(x) moves every stream to its substream x, 2^76 * x
+ * numbers after the stream start, so that different seeds (replications)
+ * never overlap and x is used only as an index.
+ *
+ * The state of a stream is the six values (x1[n-3], x1[n-2], x1[n-1],
+ * x2[n-3], x2[n-2], x2[n-1]) of the two component recurrences.
+ * -------------------------------------------------------------------------
+ */
+public class Mrg32k3a implements RandomSource {
+
+    static final long M1   = 4294967087L;
+    static final long M2   = 4294944443L;
+    static final long A12  = 1403580L;
+    static final long A13N = 810728L;
+    static final long A21  = 527612L;
+    static final long A23N = 1370589L;
+    static final double NORM = 1.0 / (M1 + 1);
+    static final long SEED = 12345L;           /* initial value of all six components */
+
+    /* one-step transition matrices of the two components */
+    static final long[][] A1 = {{0, 1, 0}, {0, 0, 1}, {M1 - A13N, A12, 0}};
+    static final long[][] A2 = {{0, 1, 0}, {0, 0, 1}, {M2 - A23N, 0, A21}};
+
+    /* jumps to the next substream (2^76) and to the next stream (2^127) */
+    static final long[][] A1P76  = power2(A1, 76, M1);
+    static final long[][] A2P76  = power2(A2, 76, M2);
+    static final long[][] A1P127 = power2(A1, 127, M1);
+    static final long[][] A2P127 = power2(A2, 127, M2);
+
+    private long[] start = new long[6];        /* first state of each stream   */
+    private long[] state = new long[6];        /* current state of each stream */
+    private int streams;                       /* streams created so far       */
+    private int stream;                        /* current stream               */
+
+    public Mrg32k3a() {
+        plantSeeds(0);
+    }
+
+    @Override
+    public double random() {
+        return (next(stream * 6));
+    }
+
+    @Override
+    public void selectStream(int index) {
+        ensure(index);
+        stream = index;
+    }
+
+    @Override
+    public void plantSeeds(long x) {
+        /* ---------------------------------------------------------------
+         * Stream 0 starts at substream x of the default seed, the others
+         * follow 2^127 apart.  x < 0 takes the index from the clock.
+         * ---------------------------------------------------------------
+         */
+        if (x < 0)
+            x = System.currentTimeMillis();
+        Arrays.fill(start, 0, 6, SEED);
+        apply(power(A1P76, x, M1), start, 0, M1);
+        apply(power(A2P76, x, M2), start, 3, M2);
+        System.arraycopy(start, 0, state, 0, 6);
+        streams = 1;
+        stream = 0;
+    }
+
+    @Override
+    public void random(int s, double[] u, int from, int to) {
+        ensure(s);
+        int b = s * 6;
+        for (int i = from; i < to; i++)
+            u[i] = next(b);
+    }
+
+    @Override
+    public void skip(int s, long n) {
+        if (n < 0)
+            throw new IllegalArgumentException("negative skip: " + n);
+        ensure(s);
+        apply(power(A1, n, M1), state, s * 6, M1);
+        apply(power(A2, n, M2), state, s * 6 + 3, M2);
+    }
+
+    @Override
+    public int stateSize() {
+        return 6;
+    }
+
+    @Override
+    public void getState(int s, long[] x) {
+        ensure(s);
+        System.arraycopy(state, s * 6, x, 0, 6);
+    }
+
+    @Override
+    public void setState(int s, long[] x) {
+        ensure(s);
+        System.arraycopy(x, 0, state, s * 6, 6);
+    }
+
+    // next number of the stream whose state is state[b .. b+5]
+    private double next(int b) {
+        long p1 = (A12 * state[b + 1] - A13N * state[b]) % M1;
+        if (p1 < 0)
+            p1 += M1;
+        state[b] = state[b + 1];
+        state[b + 1] = state[b + 2];
+        state[b + 2] = p1;
+
+        long p2 = (A21 * state[b + 5] - A23N * state[b + 3]) % M2;
+        if (p2 < 0)
+            p2 += M2;
+        state[b + 3] = state[b + 4];
+        state[b + 4] = state[b + 5];
+        state[b + 5] = p2;
+
+        return (p1 > p2 ? (p1 - p2) * NORM : (p1 - p2 + M1) * NORM);
+    }
+
+    // creates the streams up to s, each 2^127 after the previous one
+    private void ensure(int s) {
+        if (s < 0)
+            throw new IllegalArgumentException("negative stream: " + s);
+        if (s < streams)
+            return;
+        if (6 * (s + 1) > start.length) {
+            int n = Math.max(6 * (s + 1), 2 * start.length);
+            start = Arrays.copyOf(start, n);
+            state = Arrays.copyOf(state, n);
+        }
+        for (; streams <= s; streams++) {
+            int b = streams * 6;
+            System.arraycopy(start, b - 6, start, b, 6);
+            apply(A1P127, start, b, M1);
+            apply(A2P127, start, b + 3, M2);
+            System.arraycopy(start, b, state, b, 6);
+        }
+    }
+
+    // v[b .. b+2] = a * v[b .. b+2] mod m
+    private static void apply(long[][] a, long[] v, int b, long m) {
+        long x0 = v[b], x1 = v[b + 1], x2 = v[b + 2];
+        for (int i = 0; i < 3; i++)
+            v[b + i] = (mulMod(a[i][0], x0, m) + mulMod(a[i][1], x1, m) + mulMod(a[i][2], x2, m)) % m;
+    }
+
+    // a^n mod m, n >= 0
+    private static long[][] power(long[][] a, long n, long m) {
+        long[][] r = {{1, 0, 0}, {0, 1, 0}, {0, 0, 1}};
+        while (n > 0) {
+            if ((n & 1) == 1)
+                r = multiply(r, a, m);
+            a = multiply(a, a, m);
+            n >>= 1;
+        }
+        return r;
+    }
+
+    // a^(2^e) mod m
+    private static long[][] power2(long[][] a, int e, long m) {
+        for (int i = 0; i < e; i++)
+            a = multiply(a, a, m);
+        return a;
+    }
+
+    private static long[][] multiply(long[][] a, long[][] b, long m) {
+        long[][] c = new long[3][3];
+        for (int i = 0; i < 3; i++)
+            for (int j = 0; j < 3; j++)
+                c[i][j] = (mulMod(a[i][0], b[0][j], m) + mulMod(a[i][1], b[1][j], m)
+                        + mulMod(a[i][2], b[2][j], m)) % m;
+        return c;
+    }
+
+    // a * b mod m for 0 <= a, b < m < 2^32, without overflow
+    private static long mulMod(long a, long b, long m) {
+        return ((a * (b >>> 16)) % m * 65536 + a * (b & 0xFFFF)) % m;
+    }
+}
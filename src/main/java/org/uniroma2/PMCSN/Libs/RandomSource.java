@@ -0,0 +1,53 @@
+package org.uniroma2.PMCSN.Libs;
+
+/* -------------------------------------------------------------------------
+ * A multi-stream uniform random number generator, as used by Distributions
+ * and by the simulation nodes.  random() returns the next number of the
+ * current stream, chosen with selectStream(s); the bulk, skip and state
+ * methods address a stream explicitly and leave the current one unchanged.
+ *
+ * The state of a stream is stateSize() longs: getState(s, x) saves it and
+ * setState(s, x) puts it back, so a sequence can be replayed exactly.
+ *
+ * Implementations:
+ *    LEHMER   - Rngs, the reference generator: 256 streams, period 2^31 - 2
+ *    MRG32K3A - Mrg32k3a: unlimited streams, period about 2^191, one
+ *               substream per seed
+ * -------------------------------------------------------------------------
+ */
+public interface RandomSource {
+
+    enum Type { LEHMER, MRG32K3A }
+
+    static RandomSource create(Type type) {
+        return switch (type) {
+            case LEHMER -> new Rngs();
+            case MRG32K3A -> new Mrg32k3a();
+        };
+    }
+
+    /* next random number in (0, 1) from the current stream */
+    double random();
+
+    /* sets the current stream */
+    void selectStream(int index);
+
+    /* sets the state of all streams from x */
+    void plantSeeds(long x);
+
+    /* fills u[from], ..., u[to - 1] with the next numbers of stream s */
+    void random(int s, double[] u, int from, int to);
+
+    /* advances stream s by n >= 0 numbers without generating them;
+       n < 0 throws IllegalArgumentException */
+    void skip(int s, long n);
+
+    /* number of longs in the state of one stream */
+    int stateSize();
+
+    /* copies the state of stream s into x */
+    void getState(int s, long[] x);
+
+    /* sets the state of stream s from x */
+    void setState(int s, long[] x);
+}
@@ -39,10 +39,12 @@ import java.io.*;
 import java.util.*;
 
 
-public class Rngs {
+public class Rngs implements RandomSource {
 
-    long MODULUS      = 2147483647; /* DON'T CHANGE THIS VALUE                  */
-    long MULTIPLIER   = 48271;      /* DON'T CHANGE THIS VALUE                  */
+    static final long MODULUS    = 2147483647; /* DON'T CHANGE THIS VALUE         */
+    static final long MULTIPLIER = 48271;      /* DON'T CHANGE THIS VALUE         */
+    static final long Q = MODULUS / MULTIPLIER; /* Schrage's decomposition of m, */
+    static final long R = MODULUS % MULTIPLIER; /* computed once for random()    */
     static long CHECK = 399268537L; /* DON'T CHANGE THIS VALUE                  */
     long DEFAULT      = 123456789L; /* initial seed, use 0 < DEFAULT < MODULUS  */
 
@@ -92,8 +94,6 @@ public class Rngs {
          * between 0.0 and 1.0.
          * ----------------------------------------------------------------
          */
-        long Q = MODULUS / MULTIPLIER;
-        long R = MODULUS % MULTIPLIER;
         long t;
 
         t = MULTIPLIER * (seed[stream] % Q) - R * (seed[stream] / Q);
@@ -104,6 +104,88 @@ public class Rngs {
         return ((double) seed[stream] / MODULUS);
     }
 
+    public void random(int s, double[] u, int from, int to) {
+        /* ----------------------------------------------------------------
+         * Fills u[from], ..., u[to - 1] with consecutive random numbers
+         * from stream s, the same values that selectStream(s) followed by
+         * (to - from) calls to random() would return.  The current stream
+         * is not changed.
+         * ----------------------------------------------------------------
+         */
+        s = s % STREAMS;
+        if ((initialized == 0) && (s != 0))      /* protect against        */
+            plantSeeds(DEFAULT);                 /* un-initialized streams */
+        long x = seed[s];
+        for (int i = from; i < to; i++) {
+            x = MULTIPLIER * (x % Q) - R * (x / Q);
+            if (x <= 0)
+                x += MODULUS;
+            u[i] = (double) x / MODULUS;
+        }
+        seed[s] = x;
+    }
+
+    public void skip(long n) {
+        /* ----------------------------------------------------------------
+         * Advances the current stream by n calls to random() in O(log n)
+         * operations, without generating the intermediate values.  n may
+         * be negative, to move the stream back.
+         * ----------------------------------------------------------------
+         */
+        seed[stream] = skip(seed[stream], n);
+    }
+
+    public void skip(int s, long n) {
+        /* ----------------------------------------------------------------
+         * Advances stream s by n >= 0 calls to random(), as skip(n) does
+         * for the current stream.  Unlike skip(n), a negative n is refused,
+         * as required by RandomSource for every generator.
+         * ----------------------------------------------------------------
+         */
+        if (n < 0)
+            throw new IllegalArgumentException("negative skip: " + n);
+        s = s % STREAMS;
+        if ((initialized == 0) && (s != 0))      /* protect against        */
+            plantSeeds(DEFAULT);                 /* un-initialized streams */
+        seed[s] = skip(seed[s], n);
+    }
+
+    public int stateSize() {
+        return 1;
+    }
+
+    public void getState(int s, long[] x) {
+        s = s % STREAMS;
+        if ((initialized == 0) && (s != 0))      /* protect against        */
+            plantSeeds(DEFAULT);                 /* un-initialized streams */
+        x[0] = seed[s];
+    }
+
+    public void setState(int s, long[] x) {
+        s = s % STREAMS;
+        if ((initialized == 0) && (s != 0))      /* protect against        */
+            plantSeeds(DEFAULT);                 /* un-initialized streams */
+        seed[s] = x[0];
+    }
+
+    public static long skip(long x, long n) {
+        /* ----------------------------------------------------------------
+         * Returns the state reached from state x after n calls to random(),
+         * that is x * MULTIPLIER^n mod MODULUS.  The period is MODULUS - 1,
+         * so the exponent is reduced modulo MODULUS - 1.
+         * ----------------------------------------------------------------
+         */
+        long e = Math.floorMod(n, MODULUS - 1);
+        long a = MULTIPLIER;
+        while (e > 0) {                   /* square-and-multiply; products */
+            if ((e & 1) == 1)             /* of two values below 2^31 fit  */
+                x = (x * a) % MODULUS;    /* in a long                     */
+            a = (a * a) % MODULUS;
+            e >>= 1;
+        }
+        return x;
+    }
+
     public void plantSeeds(long x) {
         /* ---------------------------------------------------------------------
          * Use this function to set the state of all the random number generator
@@ -113,8 +195,8 @@ public class Rngs {
          * 8,367,782 calls to Random().
          * ---------------------------------------------------------------------
          */
-        long Q = MODULUS / A256;
-        long R = MODULUS % A256;
+        long Q256 = MODULUS / A256;
+        long R256 = MODULUS % A256;
         int  j;
         int  s;
 
@@ -124,7 +206,7 @@ public class Rngs {
         putSeed(x);                            /* set seed[0]                 */
         stream = s;                            /* reset the current stream    */
         for (j = 1; j < STREAMS; j++) {
-            x = A256 * (seed[j - 1] % Q) - R * (seed[j - 1] / Q);
+            x = A256 * (seed[j - 1] % Q256) - R256 * (seed[j - 1] / Q256);
             if (x > 0)
                 seed[j] = x;
             else
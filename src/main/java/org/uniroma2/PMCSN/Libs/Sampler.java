@@ -0,0 +1,109 @@
+package org.uniroma2.PMCSN.Libs;
+
+import java.util.Arrays;
+
+/* -------------------------------------------------------------------------
+ * A continuous random variate with fixed parameters.
+ *
+ * Samplers are immutable: the constants that depend only on the parameters
+ * are computed once, when the sampler is built, and sample(r) draws from
+ * the current stream of r.  The same sampler can therefore be shared by
+ * several nodes (and threads), each selecting its own stream before
+ * sampling.  Every sampler below uses exactly one random number per sample
+ * except erlang(n, b), which uses n.
+ *
+ *      Sampler                     Range (x)  Mean
+ *
+ *      exponential(m)              x > 0      m
+ *      erlang(n, b)                x > 0      n*b
+ *      logNormal(a, b)             x > 0      Exp(a + 0.5*b*b)
+ *      hyperExponential(p, m1, m2) x > 0      p*m1 + (1-p)*m2
+ *      truncatedNormal(m, s, a, b) a <= x <= b
+ *      empirical(x[])              min..max   (piecewise-linear cdf)
+ * -------------------------------------------------------------------------
+ */
+public interface Sampler {
+
+    double sample(RandomSource r);
+
+    static Sampler exponential(double m) {
+        return new Exponential(m);
+    }
+
+    static Sampler erlang(int n, double b) {
+        return new Erlang(n, b);
+    }
+
+    static Sampler logNormal(double a, double b) {
+        return new LogNormal(a, b);
+    }
+
+    static Sampler hyperExponential(double p, double m1, double m2) {
+        return new HyperExponential(p, m1, m2);
+    }
+
+    static Sampler truncatedNormal(double m, double s, double a, double b) {
+        return new TruncatedNormal(m, s, a, b);
+    }
+
+    static Sampler empirical(double... x) {
+        return new Empirical(x);
+    }
+
+    /* same value as Distributions.exponential(m, r); use m > 0.0 */
+    record Exponential(double m) implements Sampler {
+        public double sample(RandomSource r) {
+            return (-m * Math.log(1.0 - r.random()));
+        }
+    }
+
+    /* sum of n Exponential(b): one logarithm of the product; use n >= 1, b > 0.0 */
+    record Erlang(int n, double b) implements Sampler {
+        public double sample(RandomSource r) {
+            double p = 1.0;
+            for (int i = 0; i < n; i++)
+                p *= 1.0 - r.random();
+            return (-b * Math.log(p));
+        }
+    }
+
+    /* Exp(a + b*z), z standard Normal by inversion; use b > 0.0 */
+    record LogNormal(double a, double b) implements Sampler {
+        public double sample(RandomSource r) {
+            return (Math.exp(a + b * Distributions.idfStandardFast(r.random())));
+        }
+    }
+
+    /* Exponential(m1) with probability p, else Exponential(m2); use 0.0 < p < 1.0 */
+    record HyperExponential(double p, double m1, double m2) implements Sampler {
+        public double sample(RandomSource r) {
+            double u = r.random();               /* u < p picks the branch, and  */
+            if (u < p)                           /* u / p is again Uniform(0, 1) */
+                return (-m1 * Math.log(1.0 - u / p));
+            return (-m2 * Math.log(1.0 - (u - p) / (1.0 - p)));
+        }
+    }
+
+    /* ---------------------------------------------------------------------
+     * Continuous empirical distribution of the observations x: the cdf is
+     * piecewise linear between the sorted observations (Law & Kelton).
+     * NOTE: at least 2 observations
+     * ---------------------------------------------------------------------
+     */
+    final class Empirical implements Sampler {
+        private final double[] x;                /* sorted observations */
+
+        Empirical(double[] x) {
+            if (x.length < 2)
+                throw new IllegalArgumentException("at least 2 observations are needed");
+            this.x = x.clone();
+            Arrays.sort(this.x);
+        }
+
+        public double sample(RandomSource r) {
+            double t = r.random() * (x.length - 1);
+            int i = Math.min((int) t, x.length - 2);
+            return (x[i] + (t - i) * (x[i + 1] - x[i]));
+        }
+    }
+}
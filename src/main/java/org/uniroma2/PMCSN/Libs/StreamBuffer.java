@@ -0,0 +1,64 @@
+package org.uniroma2.PMCSN.Libs;
+
+/* -------------------------------------------------------------------------
+ * A block of pre-generated random numbers from one stream of a
+ * RandomSource.  Values are produced by random(s, u, from, to) in blocks
+ * of the given size and handed out one at a time by random(): the sequence
+ * is exactly the one selectStream(s) + random() would produce, but the
+ * current stream of the generator is never changed.
+ *
+ * Use one buffer per stream, and only for streams that are not read through
+ * the generator directly.  getState() and setState() work on the logical
+ * state (the state after the last value handed out): the stream is put
+ * back at the start of the block and skipped over the values already used.
+ * -------------------------------------------------------------------------
+ */
+public class StreamBuffer {
+
+    private final RandomSource r;
+    private final int          stream;
+    private final double       u[];
+    private final long         first[];    /* state of the stream before the block */
+    private int                next;       /* index of the next value to return    */
+
+    public StreamBuffer(RandomSource r, int stream, int size) {
+        this.r      = r;
+        this.stream = stream;
+        this.u      = new double[size];
+        this.first  = new long[r.stateSize()];
+        this.next   = size;                 /* empty: filled on first use */
+    }
+
+    public double random() {
+        if (next == u.length) {
+            r.getState(stream, first);
+            r.random(stream, u, 0, u.length);
+            next = 0;
+        }
+        return (u[next++]);
+    }
+
+    public void getState(long[] x) {
+        /* ---------------------------------------------------------------
+         * Copies into x the state of the stream as seen by the caller.
+         * The values not yet returned are discarded, and generated again
+         * identically by the next calls to random().
+         * ---------------------------------------------------------------
+         */
+        if (next < u.length) {
+            r.setState(stream, first);
+            r.skip(stream, next);
+            next = u.length;
+        }
+        r.getState(stream, x);
+    }
+
+    public void setState(long[] x) {
+        /* ---------------------------------------------------------------
+         * Sets the state of the stream and discards the buffered values.
+         * ---------------------------------------------------------------
+         */
+        r.setState(stream, x);
+        next = u.length;
+    }
+}
@@ -0,0 +1,41 @@
+package org.uniroma2.PMCSN.Libs;
+
+/* -------------------------------------------------------------------------
+ * Normal(m, s) random variate truncated to [a, b], by inversion.
+ *
+ * The bound probabilities cdfNormal(m, s, a) and cdfNormal(m, s, b) are
+ * computed once, in the constructor; each sample then takes one random
+ * number u from the current stream, maps it to (alpha, beta) exactly as
+ * uniform(alpha, beta, r) does, and inverts it with idfStandardFast.  The
+ * stream is consumed as by the uniform + idfNormal computation it replaces,
+ * so runs stay reproducible from the seed.
+ * -------------------------------------------------------------------------
+ */
+public final class TruncatedNormal implements Sampler {
+
+    private final double m;
+    private final double s;
+    private final double a;
+    private final double b;
+    private final double alpha;           /* cdfNormal(m, s, a) */
+    private final double width;           /* beta - alpha       */
+
+    public TruncatedNormal(double m, double s, double a, double b) {
+        /* ======================================================
+         * NOTE: m can be any value, but s > 0.0 and a < b
+         * ======================================================
+         */
+        this.m     = m;
+        this.s     = s;
+        this.a     = a;
+        this.b     = b;
+        this.alpha = Distributions.cdfNormal(m, s, a);
+        this.width = Distributions.cdfNormal(m, s, b) - alpha;
+    }
+
+    @Override
+    public double sample(RandomSource r) {
+        double x = m + s * Distributions.idfStandardFast(alpha + width * r.random());
+        return (Math.min(Math.max(x, a), b));      /* guard against rounding */
+    }
+}
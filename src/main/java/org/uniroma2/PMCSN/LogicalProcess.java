@@ -0,0 +1,87 @@
+package org.uniroma2.PMCSN;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Processo logico della simulazione parallela conservativa: un nodo con la
+ * propria FEL, eseguito su un proprio thread.
+ * <p>
+ * I job in ingresso arrivano da un Channel e un evento viene processato solo
+ * quando l'orizzonte del canale garantisce che nessun messaggio anteriore
+ * possa ancora arrivare. Dopo ogni evento il processo avanza l'orizzonte dei
+ * canali in uscita al valore fornito da lookahead. I report vengono registrati
+ * agli stessi tempi (e con le stesse integrazioni) del ciclo eventi unico di
+ * NodeTrace.simulate, quindi le tracce coincidono con quelle sequenziali.
+ */
+public final class LogicalProcess implements Callable<NodeTrace> {
+    private final Node node;
+    private final EventSet fel;
+    private final Channel input;            // null se il nodo non riceve job
+    private final List<Channel> outputs;
+    private final DoubleSupplier lookahead; // limite inferiore dei tempi dei messaggi futuri
+    private final double firstReport;
+    private final double interval;
+    private final double stop;
+
+    public LogicalProcess(Node node, EventSet fel, Channel input,
+                          List<Channel> outputs, DoubleSupplier lookahead,
+                          double firstReport, double interval, double stop) {
+        this.node = node;
+        this.fel = fel;
+        this.input = input;
+        this.outputs = outputs;
+        this.lookahead = lookahead;
+        this.firstReport = firstReport;
+        this.interval = interval;
+        this.stop = stop;
+    }
+
+    @Override
+    public NodeTrace call() throws InterruptedException {
+        NodeTrace trace = new NodeTrace(NodeTrace.reportCount(firstReport, interval, stop));
+        double safe = input == null ? Double.POSITIVE_INFINITY : Double.NEGATIVE_INFINITY;
+        double nextReportTime = firstReport;
+        try {
+            publish();
+            while (true) {
+                double tmin = fel.peekTime();
+                double tnext = Math.min(tmin, nextReportTime);
+
+                // prima di avanzare oltre l'orizzonte attendo il mittente:
+                // i job consegnati possono anticipare la testa della FEL
+                double needed = Math.min(tnext, stop);
+                if (needed > safe) {
+                    safe = input.receive(node, needed);
+                    continue;
+                }
+
+                // nessun evento né report entro STOP
+                if (tnext > stop) {
+                    break;
+                }
+
+                if (nextReportTime <= tmin) {
+                    node.integrateTo(nextReportTime);
+                    trace.record(nextReportTime, node);
+                    nextReportTime += interval;
+                } else {
+                    node.processNextEvent(tmin);
+                    publish();
+                }
+            }
+        } finally {
+            // anche in caso di errore, per non lasciare i destinatari in attesa
+            for (Channel c : outputs) c.close();
+        }
+        trace.close(node);
+        return trace;
+    }
+
+    private void publish() {
+        if (outputs.isEmpty()) return;
+        double bound = lookahead.getAsDouble();
+        for (Channel c : outputs) c.advance(bound);
+    }
+}
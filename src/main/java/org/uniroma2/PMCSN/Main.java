@@ -1,27 +1,118 @@
 package org.uniroma2.PMCSN;
 
+import org.uniroma2.PMCSN.Estimators.VarianceEstimator;
+import org.uniroma2.PMCSN.Libs.RandomSource;
+import org.uniroma2.PMCSN.Utils.OutputAnalysis;
+import org.uniroma2.PMCSN.Utils.StoppingRule;
+
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class Main {
+    private static final Scanner input = new Scanner(System.in);
+
     public static void main(String[] args) {
         System.out.println("---- Choose type of system ----");
         System.out.println("0 - Simple ");
         System.out.println("1 - Ride Sharing ");
 
-        int systemType = getChoice();
-
-        Sistema system = null;
-        switch (systemType){
-            case 0 -> system = new SimpleSystem();
-            case 1 -> system = new RideSharingSystem();
-            default -> System.out.println("Invalid system choice!");
-        }
+        int systemType = getChoice(1);
 
         System.out.println("---- Choose type of simulation ----");
         System.out.println("0 - Finite horizon simulation ");
         System.out.println("1 - Infinite horizon simulation ");
 
-        int simulationType = getChoice();
+        int simulationType = getChoice(1);
+
+        SimulationConfig config = new SimulationConfig();
+
+        if (systemType == 1) {
+            System.out.println("---- Choose ride matching policy ----");
+            System.out.println("0 - Greedy (on each arrival) ");
+            System.out.println("1 - Batch per time window (first-fit decreasing) ");
+
+            config.setMatchingPolicy(RideSharingMultiserverNode.MatchingPolicy.values()[getChoice(1)]);
+
+            System.out.println("---- Choose vehicles per ride center ----");
+            System.out.println("Default: " + RideSharingMultiserverNode.DEFAULT_SERVERS);
+
+            config.setRideServers(getNumber(1));
+        }
+
+        System.out.println("---- Choose future event list ----");
+        System.out.println("0 - Binary heap ");
+        System.out.println("1 - Calendar queue ");
+
+        config.setEventSet(EventSet.Type.values()[getChoice(1)]);
+
+        System.out.println("---- Choose random number generator ----");
+        System.out.println("0 - Lehmer (Rngs, 256 streams) ");
+        System.out.println("1 - MRG32k3a (unlimited streams) ");
+
+        config.setGenerator(RandomSource.Type.values()[getChoice(1)]);
+
+        System.out.println("---- Choose warm-up deletion ----");
+        System.out.println("0 - Fixed (finite horizon only) ");
+        System.out.println("1 - MSER-5 (chosen per run) ");
+
+        config.setWarmup(SimulationConfig.Warmup.values()[getChoice(1)]);
+
+        if (simulationType == 0) {
+            System.out.println("---- Choose replication execution ----");
+            System.out.println("0 - Sequential ");
+            System.out.println("1 - Parallel (platform threads) ");
+            System.out.println("2 - Parallel (virtual threads) ");
+
+            config.setReplicationMode(ReplicationRunner.Mode.values()[getChoice(2)]);
+
+            System.out.println("---- Choose replica seeding ----");
+            System.out.println("0 - Independent replicas ");
+            System.out.println("1 - Antithetic pairs (1 - u) ");
+
+            config.setAntithetic(getChoice(1) == 1);
+
+            System.out.println("---- Choose simulation engine ----");
+            System.out.println("0 - Single event loop ");
+            System.out.println("1 - One thread per node (decoupled networks) ");
+            System.out.println("2 - Conservative parallel (null messages) ");
+            System.out.println("3 - Optimistic parallel (Time Warp) ");
+
+            config.setEngine(SimulationConfig.Engine.values()[getChoice(3)]);
+        } else {
+            System.out.println("---- Choose batch means stopping ----");
+            System.out.println("0 - Fixed number of batches ");
+            System.out.println("1 - Until 5% relative half-width (at most 4096 base batches) ");
+            System.out.println("2 - Until 1% relative half-width (at most 4096 base batches) ");
+            System.out.println("3 - Until a target per metric (at most 4096 base batches) ");
+
+            switch (getChoice(3)) {
+                case 1 -> config.setStoppingRule(StoppingRule.relative(0.05, 4096));
+                case 2 -> config.setStoppingRule(StoppingRule.relative(0.01, 4096));
+                case 3 -> config.setStoppingRule(new StoppingRule(StoppingRule.DEFAULT_ALPHA, getTargets(),
+                        StoppingRule.DEFAULT_MIN_BATCHES, 4096));
+                default -> { }
+            }
+
+            System.out.println("---- Choose batch size ----");
+            System.out.println("0 - Fixed ");
+            System.out.println("1 - Adaptive (doubled until lag-1 autocorrelation vanishes) ");
+
+            config.setAdaptiveBatchSize(getChoice(1) == 1);
+
+            System.out.println("---- Choose variance estimator ----");
+            System.out.println("0 - Batch means ");
+            System.out.println("1 - Overlapping batch means ");
+            System.out.println("2 - Standardized time series (area + batch means) ");
+
+            config.setEstimator(VarianceEstimator.Type.values()[getChoice(2)]);
+        }
+
+        Sistema system = null;
+        switch (systemType){
+            case 0 -> system = new SimpleSystem(config);
+            case 1 -> system = new RideSharingSystem(config);
+            default -> System.out.println("Invalid system choice!");
+        }
 
         switch (simulationType){
             case 0 -> {
@@ -36,18 +127,72 @@ public class Main {
         }
     }
 
-    private static int getChoice() {
-        Scanner input = new Scanner(System.in);
+    private static int getChoice(int max) {
         int choice;
 
         while (true) {
             System.out.println("Please, make a choice: ");
 
             choice = input.nextInt();
-            if (choice >= 0 && choice <= 1) break;
+            if (choice >= 0 && choice <= max) break;
 
             System.out.println("Not valid choice!");
         }
         return choice;
     }
-}
\ No newline at end of file
+
+    private static StoppingRule.Target[] getTargets() {
+        OutputAnalysis.Metric[] metrics = OutputAnalysis.Metric.values();
+        StoppingRule.Target[] targets = new StoppingRule.Target[metrics.length];
+
+        while (true) {
+            for (OutputAnalysis.Metric m : metrics) {
+                System.out.println("---- Target for " + m.getLabel() + " ----");
+                System.out.println("0 - Not required ");
+                System.out.println("1 - Relative half-width (e.g. 0.01 for 1%) ");
+                System.out.println("2 - Absolute half-width ");
+
+                targets[m.ordinal()] = switch (getChoice(2)) {
+                    case 1 -> StoppingRule.Target.relative(getPositive());
+                    case 2 -> StoppingRule.Target.absolute(getPositive());
+                    default -> StoppingRule.Target.NONE;
+                };
+            }
+            if (Arrays.stream(targets).anyMatch(StoppingRule.Target::isRequired)) break;
+
+            System.out.println("At least one metric needs a target!");
+        }
+        return targets;
+    }
+
+    private static double getPositive() {
+        double number;
+
+        while (true) {
+            System.out.println("Please, enter a positive number: ");
+
+            try {
+                number = Double.parseDouble(input.next());
+                if (number > 0) break;
+            } catch (NumberFormatException ignored) {
+            }
+
+            System.out.println("Not valid number!");
+        }
+        return number;
+    }
+
+    private static int getNumber(int min) {
+        int number;
+
+        while (true) {
+            System.out.println("Please, enter a number (at least " + min + "): ");
+
+            number = input.nextInt();
+            if (number >= min) break;
+
+            System.out.println("Not valid number!");
+        }
+        return number;
+    }
+}
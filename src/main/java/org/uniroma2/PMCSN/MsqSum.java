@@ -1,6 +0,0 @@
-package org.uniroma2.PMCSN;
-
-public class MsqSum {          /* accumulated sums of */
-    double service;           /* service times       */
-    long served;              /* number served       */
-}
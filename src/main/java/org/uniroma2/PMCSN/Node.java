@@ -2,6 +2,12 @@ package org.uniroma2.PMCSN;
 
 public interface Node {
 
+    /** Stream RNG riservati a ogni nodo: il nodo i usa gli stream i*STREAMS_PER_NODE + k. */
+    int STREAMS_PER_NODE = 8;
+
+    /** Valori generati in blocco per gli stream a uso singolo (StreamBuffer). */
+    int RNG_BLOCK = 64;
+
     int processNextEvent(double t);
     double peekNextEventTime();
     int peekNextEventType();
@@ -12,7 +18,6 @@ public interface Node {
     double getAvgNumInNode();
     int findOne();
     void setArrivalEvent(MsqEvent event);
-    void addNumber();
     void collectStatistics(int replicaIndex);
     double getAreaQueue();
     long getQueueJobs();
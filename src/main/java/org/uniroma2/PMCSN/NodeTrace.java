@@ -0,0 +1,185 @@
+package org.uniroma2.PMCSN;
+
+import org.uniroma2.PMCSN.Utils.MserTruncation;
+
+import java.util.List;
+
+/**
+ * Istantanee cumulative di un nodo ai tempi di report di una replica ad
+ * orizzonte finito (area, job processati, area in coda, utilizzazione),
+ * più le statistiche finali. Permette di calcolare le righe globali e per
+ * nodo anche quando i nodi sono stati simulati separatamente.
+ */
+public class NodeTrace {
+    private final double[] time;
+    private final double[] area;
+    private final long[] jobs;
+    private final double[] areaQueue;
+    private final double[] utilization;
+    private int size = 0;
+    private double start = 0.0;         // inizio delle statistiche: 0 o fine del warm-up
+    private double avgResponse;
+    private long processedJobs;
+
+    public NodeTrace(int reports) {
+        time = new double[reports];
+        area = new double[reports];
+        jobs = new long[reports];
+        areaQueue = new double[reports];
+        utilization = new double[reports];
+    }
+
+    /** Numero di report fra firstReport e stop (inclusi) con passo interval. */
+    public static int reportCount(double firstReport, double interval, double stop) {
+        int n = 0;
+        for (double t = firstReport; t <= stop; t += interval) n++;
+        return n;
+    }
+
+    /**
+     * Simula i nodi che condividono la FEL fel fino a stop, integrando tutti i
+     * nodi e registrandone un'istantanea a ogni tempo di report.
+     *
+     * @return una traccia per nodo, nello stesso ordine di nodes
+     */
+    public static NodeTrace[] simulate(EventSet fel, List<? extends Node> nodes,
+                                       double firstReport, double interval, double stop) {
+        int reports = reportCount(firstReport, interval, stop);
+        NodeTrace[] traces = new NodeTrace[nodes.size()];
+        for (int i = 0; i < traces.length; i++) traces[i] = new NodeTrace(reports);
+
+        double nextReportTime = firstReport;
+        while (true) {
+            // prossimo evento: testa della FEL
+            double tmin = fel.peekTime();
+
+            // se non ci sono più eventi utili e ho superato STOP e l'ultimo report
+            if (tmin > stop && nextReportTime > stop) {
+                break;
+            }
+
+            // report prima del prossimo evento: integra e registra tutti i nodi
+            if (nextReportTime <= tmin) {
+                for (Node n : nodes) {
+                    n.integrateTo(nextReportTime);
+                }
+                for (int i = 0; i < traces.length; i++) {
+                    traces[i].record(nextReportTime, nodes.get(i));
+                }
+                nextReportTime += interval;
+                continue;
+            }
+
+            // altrimenti processo il prossimo evento
+            if (tmin <= stop) {
+                fel.peekNode().processNextEvent(tmin);
+            } else {
+                break;
+            }
+        }
+
+        for (int i = 0; i < traces.length; i++) traces[i].close(nodes.get(i));
+        return traces;
+    }
+
+    /** Registra lo stato cumulativo del nodo n al tempo t (già integrato fino a t). */
+    public void record(double t, Node n) {
+        time[size] = t;
+        area[size] = n.getArea();
+        jobs[size] = n.getProcessedJobs();
+        areaQueue[size] = n.getAreaQueue();
+        utilization[size] = n.getUtilization();
+        size++;
+    }
+
+    /** Scarta i report successivi ai primi size (rollback dell'esecuzione ottimistica). */
+    public void truncate(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Sceglie con MSER-5 il warm-up delle tracce traces (nodi della stessa
+     * replica, con gli stessi tempi di report), usando la serie del numero
+     * medio di job nel sistema in ciascun intervallo, e lo elimina da tutte.
+     *
+     * @return il troncamento usato: truncation() intervalli eliminati
+     */
+    public static MserTruncation deleteWarmup(NodeTrace[] traces) {
+        MserTruncation mser = new MserTruncation();
+        double lastTime = 0.0, lastArea = 0.0;
+        for (int k = 0; k < traces[0].size; k++) {
+            double area = 0.0;
+            for (NodeTrace n : traces) area += n.area[k];
+            mser.accept((area - lastArea) / (traces[0].time[k] - lastTime));
+            lastTime = traces[0].time[k];
+            lastArea = area;
+        }
+        int d = mser.truncation();
+        for (NodeTrace n : traces) n.deleteWarmup(d);
+        return mser;
+    }
+
+    /**
+     * Elimina i primi d intervalli di report: le istantanee successive
+     * diventano relative alla d-esima, che segna il nuovo inizio.
+     */
+    public void deleteWarmup(int d) {
+        if (d <= 0) return;
+        int b = d - 1;
+        double t0 = time[b], area0 = area[b], areaQueue0 = areaQueue[b];
+        long jobs0 = jobs[b];
+        double busy0 = utilization[b] * t0;   // utilizzazione = servizio / (capacità · t)
+        for (int k = d; k < size; k++) {
+            time[k - d] = time[k];
+            area[k - d] = area[k] - area0;
+            jobs[k - d] = jobs[k] - jobs0;
+            areaQueue[k - d] = areaQueue[k] - areaQueue0;
+            utilization[k - d] = (utilization[k] * time[k] - busy0) / (time[k] - t0);
+        }
+        size -= d;
+        start = t0;
+    }
+
+    /** Registra le statistiche di fine replica. */
+    public void close(Node n) {
+        avgResponse = n.getAvgResponse();
+        processedJobs = n.getProcessedJobs();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /** Inizio delle statistiche: 0, o la fine del warm-up eliminato. */
+    public double getStart() {
+        return start;
+    }
+
+    public double getTime(int k) {
+        return time[k];
+    }
+
+    public double getArea(int k) {
+        return area[k];
+    }
+
+    public long getJobs(int k) {
+        return jobs[k];
+    }
+
+    public double getAreaQueue(int k) {
+        return areaQueue[k];
+    }
+
+    public double getUtilization(int k) {
+        return utilization[k];
+    }
+
+    public double getAvgResponse() {
+        return avgResponse;
+    }
+
+    public long getProcessedJobs() {
+        return processedJobs;
+    }
+}
@@ -0,0 +1,103 @@
+package org.uniroma2.PMCSN;
+
+/**
+ * Richieste in attesa di match (tempo di arrivo, posti richiesti) in un
+ * buffer circolare di array primitivi. Inserimenti e rimozioni in posizione
+ * k spostano solo gli elementi dal lato più corto e non allocano: la
+ * capacità raddoppia solo se il buffer si riempie.
+ */
+public class PendingRequests {
+    private double[] t;
+    private int[] posti;
+    private int head = 0;   // indice fisico del primo elemento
+    private int size = 0;
+
+    public PendingRequests(int capacity) {
+        t = new double[capacity];
+        posti = new int[capacity];
+    }
+
+    /** Accoda una richiesta. */
+    public void add(double time, int postiRichiesti) {
+        insert(size, time, postiRichiesti);
+    }
+
+    /** Inserisce una richiesta in posizione k (0 = in testa). */
+    public void insert(int k, double time, int postiRichiesti) {
+        if (size == t.length) grow();
+        if (k < size - k) {
+            // sposto a sinistra i primi k elementi
+            head = head == 0 ? t.length - 1 : head - 1;
+            for (int j = 0; j < k; j++) move(j + 1, j);
+        } else {
+            // sposto a destra gli elementi da k in poi
+            for (int j = size; j > k; j--) move(j - 1, j);
+        }
+        size++;
+        t[physical(k)] = time;
+        posti[physical(k)] = postiRichiesti;
+    }
+
+    /** Rimuove la richiesta in posizione k. */
+    public void remove(int k) {
+        if (k < size - 1 - k) {
+            for (int j = k; j > 0; j--) move(j - 1, j);
+            head = physical(1);
+        } else {
+            for (int j = k; j < size - 1; j++) move(j + 1, j);
+        }
+        size--;
+    }
+
+    /** Posizione della prima richiesta con i posti indicati, -1 se assente. */
+    public int indexOf(int postiRichiesti) {
+        for (int k = 0; k < size; k++) {
+            if (posti[physical(k)] == postiRichiesti) return k;
+        }
+        return -1;
+    }
+
+    public double getTime(int k) {
+        return t[physical(k)];
+    }
+
+    public int getPosti(int k) {
+        return posti[physical(k)];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    // copia l'elemento logico from in posizione logica to
+    private void move(int from, int to) {
+        t[physical(to)] = t[physical(from)];
+        posti[physical(to)] = posti[physical(from)];
+    }
+
+    private int physical(int k) {
+        int i = head + k;
+        return i < t.length ? i : i - t.length;
+    }
+
+    private void grow() {
+        double[] nt = new double[2 * t.length];
+        int[] np = new int[2 * t.length];
+        for (int k = 0; k < size; k++) {
+            nt[k] = t[physical(k)];
+            np[k] = posti[physical(k)];
+        }
+        t = nt;
+        posti = np;
+        head = 0;
+    }
+}
@@ -0,0 +1,61 @@
+package org.uniroma2.PMCSN;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Esegue le repliche indipendenti di una simulazione ad orizzonte finito.
+ * <p>
+ * Ogni replica deve essere completamente isolata (RNG, FEL e nodi propri):
+ * in questo modo il risultato di ciascuna dipende solo dal suo seme e le
+ * repliche possono girare in parallelo. I risultati vengono consegnati al
+ * consumer nell'ordine delle repliche, quindi l'output è identico a quello
+ * del run sequenziale.
+ */
+public final class ReplicationRunner {
+
+    public enum Mode { SEQUENTIAL, PLATFORM_THREADS, VIRTUAL_THREADS }
+
+    private ReplicationRunner() {}
+
+    /**
+     * @param replica  esegue la replica rep (1..replicas) e ne restituisce il risultato
+     * @param consumer riceve i risultati in ordine di replica
+     */
+    public static <R> void run(SimulationConfig config, int replicas,
+                               IntFunction<R> replica, Consumer<R> consumer) {
+        if (config.getReplicationMode() == Mode.SEQUENTIAL) {
+            for (int rep = 1; rep <= replicas; rep++) {
+                consumer.accept(replica.apply(rep));
+            }
+            return;
+        }
+
+        ExecutorService executor = config.getReplicationMode() == Mode.VIRTUAL_THREADS
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(Math.min(replicas, config.getReplicationThreads()));
+        try {
+            List<Future<R>> results = new ArrayList<>(replicas);
+            for (int rep = 1; rep <= replicas; rep++) {
+                final int r = rep;
+                results.add(executor.submit(() -> replica.apply(r)));
+            }
+            for (Future<R> f : results) {
+                consumer.accept(f.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Repliche interrotte", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Replica fallita", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
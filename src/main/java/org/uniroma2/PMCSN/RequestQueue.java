@@ -0,0 +1,94 @@
+package org.uniroma2.PMCSN;
+
+/**
+ * Coda FIFO circolare di richieste (tempo di arrivo, posti richiesti)
+ * memorizzate in array primitivi: nessuna allocazione per richiesta e nessuno
+ * shift di memoria in testa. La capacità raddoppia solo se la coda si riempie,
+ * quindi la memoria resta limitata dal massimo numero di richieste pendenti.
+ */
+public class RequestQueue {
+    private double[] t;
+    private int[] posti;
+    private int head = 0;   // indice fisico del primo elemento
+    private int size = 0;
+
+    public RequestQueue(int capacity) {
+        t = new double[capacity];
+        posti = new int[capacity];
+    }
+
+    /**
+     * Accoda una richiesta mantenendo l'ordine per tempo di arrivo.
+     * Gli arrivi giungono normalmente già in ordine, quindi l'inserimento
+     * costa O(1); in caso contrario la richiesta risale dalla coda.
+     */
+    public void add(double time, int postiRichiesti) {
+        if (size == t.length) grow();
+        int k = size++;
+        while (k > 0 && t[physical(k - 1)] > time) {
+            int from = physical(k - 1);
+            int to = physical(k);
+            t[to] = t[from];
+            posti[to] = posti[from];
+            k--;
+        }
+        t[physical(k)] = time;
+        posti[physical(k)] = postiRichiesti;
+    }
+
+    /** Tempo di arrivo della prima richiesta. */
+    public double peekTime() {
+        return t[head];
+    }
+
+    /** Posti richiesti dalla prima richiesta. */
+    public int peekPosti() {
+        return posti[head];
+    }
+
+    /** Rimuove la prima richiesta. */
+    public void poll() {
+        head = physical(1);
+        size--;
+    }
+
+    /** Tempo di arrivo della k-esima richiesta (0 = la prima). */
+    public double getTime(int k) {
+        return t[physical(k)];
+    }
+
+    /** Posti richiesti dalla k-esima richiesta (0 = la prima). */
+    public int getPosti(int k) {
+        return posti[physical(k)];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    private int physical(int k) {
+        int i = head + k;
+        return i < t.length ? i : i - t.length;
+    }
+
+    private void grow() {
+        double[] nt = new double[2 * t.length];
+        int[] np = new int[2 * t.length];
+        for (int k = 0; k < size; k++) {
+            nt[k] = t[physical(k)];
+            np[k] = posti[physical(k)];
+        }
+        t = nt;
+        posti = np;
+        head = 0;
+    }
+}
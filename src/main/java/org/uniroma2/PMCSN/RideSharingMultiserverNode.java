@@ -1,44 +1,106 @@
 package org.uniroma2.PMCSN;
 
-import org.uniroma2.PMCSN.Libs.Rngs;
+import org.uniroma2.PMCSN.Libs.AliasSampler;
+import org.uniroma2.PMCSN.Libs.RandomSource;
+import org.uniroma2.PMCSN.Libs.Sampler;
+import org.uniroma2.PMCSN.Libs.StreamBuffer;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import static org.uniroma2.PMCSN.Libs.Distributions.*;
-import static org.uniroma2.PMCSN.Libs.Distributions.idfNormal;
+import java.util.Arrays;
 
 public class RideSharingMultiserverNode implements Node{
 
+    /** Politica di assegnazione delle richieste ai veicoli. */
+    public enum MatchingPolicy {
+        GREEDY,   // una richiesta alla volta, a ogni arrivo
+        BATCH     // in blocco a fine finestra, first-fit decreasing per posti
+    }
+
     private double sarrival;    // orario cumulato per gli arrivi
-    private final MsqEvent[] event;   // event[0]=next arrival, [1..S]=server departures
-    private final MsqSum[] sum;       // statistiche per ogni server
+    // eventi e veicoli in array paralleli: slot 0 = prossimo arrivo, 1..S = partenze dai server
+    private final double[] time;               // tempo dell'evento
+    private final byte[] active;               // 1 se l'evento è programmato (veicolo in servizio)
+    private final int[] postiRichiesti;        // posti richiesti (arrivo) o occupati (veicolo)
+    private final int[] capacità;
+    private final int[] capacitàRimanente;
+    private final int[] numRichiesteServite;
+    private final double[] svcMedio;           // servizio medio delle richieste a bordo
+    private final MsqEvent feedback = new MsqEvent(); // riusato per generateFeedback
+    private final EventSet fel;       // lista eventi futuri del sistema
+    private final int base;           // primo slot del nodo nella FEL
+    private final double[] service;            // servizio erogato da ogni server
+    private final FleetIndex fleet;            // veicoli per stato e capacità residua
+    private final long[] served;               // richieste servite da ogni server
     private final MsqT clock;
     private long number;        // job totali nel nodo (in servizio + in coda)
     private long index;         // contatore job processati
     private double area;        // integrale del numero in sistema
-    private final Rngs r;
+    private final RandomSource r;
+    private final int streamBase;     // primo stream RNG riservato al nodo
+    private final StreamBuffer matchBusy;   // stream 3, match con veicoli attivi
+    private final StreamBuffer matchIdle;   // stream 4, match con veicoli inattivi
+    private final StreamBuffer loss;        // stream 5, perdita/feedback
+    private final Sampler arrivals;         // tempi di interarrivo (stream 0)
+    private final Sampler services;         // tempi di guida, senza DELAY (stream 1)
     private final Sistema system;
     private double areaQueue = 0.0;  // area sotto la curva dei job in coda
     private double lastTotalService;
     private long queueJobs = 0;      // numero totale di job che hanno fatto coda
-    private static final List<MsqEvent> pendingArrivals = new ArrayList<MsqEvent>();
+    private final PendingRequests pendingArrivals = new PendingRequests(64);  // richieste in attesa di match (per nodo)
+    private final MatchingPolicy policy;
+    private double nextMatch;        // fine della finestra corrente (politica BATCH)
     /*Costants*/
     private static final int ARRIVAL = 0;
-    private static final int SERVERS = 20;
+    // posti di una richiesta accodata all'arrivo: vale sempre quanto il prossimo
+    // arrivo già programmato, postiRichiesti[ARRIVAL]
+    private static final int POSTI_ARRIVO = -1;
+    public static final int DEFAULT_SERVERS = 20;
+    private final int SERVERS;                      // veicoli della flotta
+    private final int MATCH;                        // slot FEL dell'assegnazione a fine finestra
+    static final int MAX_POSTI = 7;                 // massimo di getNumPosti
     private static final double P_EXIT = 0.2;
     private static final double FEEDBACK = 0.4;
+    // esito di una richiesta aggiuntiva: persa, in feedback o accodata
+    private static final int OUT_EXIT = 0;
+    private static final int OUT_FEEDBACK = 1;
+    private static final AliasSampler OUTCOME = new AliasSampler(P_EXIT, FEEDBACK, 1 - P_EXIT - FEEDBACK);
+    // posti richiesti 1..MAX_POSTI (elemento k: k + 1 posti)
+    private static final AliasSampler POSTI = new AliasSampler(0.4, 0.3, 0.1, 0.05, 0.05, 0.05, 0.05);
     private static final double DELAY = 10;
+    private static final Sampler SERVICE = Sampler.truncatedNormal(20.0, 2.0, 1, 60);
+    private static final double LAMBDA = 1.65 * 0.3;   // tasso di arrivo delle richieste
     private static final double TIME_WINDOW = 5;
-    private static final int SERVER_SMALL = 10;
-    private static final int SERVER_MEDIUM = 5;
-    private static final int SERVER_LARGE = 5;
+    // composizione della flotta: metà piccoli (3 posti), un quarto medi (4), il resto grandi (8)
+    private final int SERVER_SMALL;
+    private final int SERVER_MEDIUM;
+    private final int SERVER_LARGE;
     private static final double P_MATCH_BUSY = 0.6;
     private static final double P_MATCH_IDLE = 0.6;
 
 
-    public RideSharingMultiserverNode(Rngs rng, Sistema system) {
+    public RideSharingMultiserverNode(Sistema system, int index, RandomSource rng, EventSet fel) {
+        this(system, index, rng, fel, MatchingPolicy.GREEDY, DEFAULT_SERVERS, null, null);
+    }
+
+    /**
+     * @param arrivals distribuzione degli interarrivi, null per l'esponenziale del modello
+     * @param services distribuzione dei tempi di guida (a cui si somma DELAY),
+     *                 null per la normale troncata del modello
+     */
+    public RideSharingMultiserverNode(Sistema system, int index, RandomSource rng, EventSet fel,
+                                      MatchingPolicy policy, int servers, Sampler arrivals, Sampler services) {
+        this.policy = policy;
+        this.arrivals = arrivals != null ? arrivals : Sampler.exponential(1/LAMBDA);
+        this.services = services != null ? services : SERVICE;
+        this.SERVERS = servers;
+        this.MATCH = servers + 1;
+        this.SERVER_SMALL = servers / 2;
+        this.SERVER_MEDIUM = servers / 4;
+        this.SERVER_LARGE = servers - SERVER_SMALL - SERVER_MEDIUM;
         this.r = rng;
+        this.streamBase = index * STREAMS_PER_NODE;
+        this.matchBusy = new StreamBuffer(rng, streamBase + 3, RNG_BLOCK);
+        this.matchIdle = new StreamBuffer(rng, streamBase + 4, RNG_BLOCK);
+        this.loss = new StreamBuffer(rng, streamBase + 5, RNG_BLOCK);
         this.sarrival = 0.0;
         this.number = 0;
         this.index = 0;
@@ -46,42 +108,54 @@ public class RideSharingMultiserverNode implements Node{
         this.lastTotalService = 0.0;
         this.clock = new MsqT();
         this.system = system;
-
-        // eventi e somme
-        event = new MsqEvent[SERVERS + 1];
-        sum = new MsqSum[SERVERS + 1];
-
-
-        for (int i = 0; i <= SERVERS; i++) {
-            event[i] = new MsqEvent();
-            if (i>0) {
-                if (i < SERVER_SMALL) {
-                    event[i].capacità = 3;
-                    event[i].capacitàRimanente = 3;
-                    event[i].numRichiesteServite = 0;
-                } else if (i < SERVER_SMALL + SERVER_MEDIUM) {
-                    event[i].capacità = 4;
-                    event[i].capacitàRimanente = 4;
-                    event[i].numRichiesteServite = 0;
-                } else {
-                    event[i].capacità = 8;
-                    event[i].capacitàRimanente = 8;
-                    event[i].numRichiesteServite = 0;
-                }
+        this.fel = fel;
+        this.base = fel.register(this, SERVERS + 2);
+
+        // eventi e somme (azzerati dall'allocazione)
+        time = new double[SERVERS + 1];
+        active = new byte[SERVERS + 1];
+        postiRichiesti = new int[SERVERS + 1];
+        capacità = new int[SERVERS + 1];
+        capacitàRimanente = new int[SERVERS + 1];
+        numRichiesteServite = new int[SERVERS + 1];
+        svcMedio = new double[SERVERS + 1];
+        service = new double[SERVERS + 1];
+        served = new long[SERVERS + 1];
+        fleet = new FleetIndex(SERVERS, 8);   // 8 = capacità dei veicoli grandi
+
+        for (int i = 1; i <= SERVERS; i++) {
+            if (i <= SERVER_SMALL) {
+                capacità[i] = 3;
+            } else if (i <= SERVER_SMALL + SERVER_MEDIUM) {
+                capacità[i] = 4;
+            } else {
+                capacità[i] = 8;
             }
-            sum[i] = new MsqSum();
-            event[i].x = 0;
-            sum[i].service = 0.0;
-            sum[i].served = 0;
+            capacitàRimanente[i] = capacità[i];
+            fleet.add(i, false, capacità[i]);
         }
 
         // schedulo il primo arrivo “esterno”
-        event[ARRIVAL].t = getNextArrivalTime();
-        event[ARRIVAL].x = 1;
-        event[ARRIVAL].postiRichiesti = getNumPosti();
+        time[ARRIVAL] = getNextArrivalTime();
+        active[ARRIVAL] = 1;
+        postiRichiesti[ARRIVAL] = getNumPosti();
+        schedule(ARRIVAL);
+        scheduleFirstWindow();
+    }
+
+    // Politica BATCH: la prima assegnazione avviene alla fine della prima finestra
+    private void scheduleFirstWindow() {
+        if (policy != MatchingPolicy.BATCH) return;
+        nextMatch = TIME_WINDOW;
+        fel.schedule(base + MATCH, nextMatch);
     }
 
-    public static int getNumServersPerRide() {
+    // Programma nella FEL l'evento i con il suo tempo corrente
+    private void schedule(int i) {
+        fel.schedule(base + i, time[i]);
+    }
+
+    public int getNumServers() {
         return SERVERS;
     }
 
@@ -103,79 +177,95 @@ public class RideSharingMultiserverNode implements Node{
                 break;
             }
 
-            // Faccio un “snapshot” della coda
-            List<MsqEvent> snapshot = new ArrayList<>(pendingArrivals);
-
-            // Scorro snapshot, ma rimuovo da pendingArrivals
-            for (MsqEvent req : snapshot) {
-                boolean matched = false;
-
-                // 1) server attivi
-                r.selectStream(3); // stream 3 per match con server attivi
-                for (int i = 1; i <= SERVERS && !matched; i++) {
-                    if (event[i].x == 1
-                            && event[i].capacitàRimanente >= req.postiRichiesti
-                            && r.random() < P_MATCH_BUSY) {
-
-                        double svc = getServiceTime();
-                        event[i].t = clock.current + svc;
-                        event[i].svc = (event[i].svc * event[i].numRichiesteServite + svc)
-                                / (event[i].numRichiesteServite + 1);
-                        event[i].numRichiesteServite++;
-                        event[i].capacitàRimanente -= req.postiRichiesti;
-                        event[i].postiRichiesti += req.postiRichiesti;
+            // Scorro la coda da capo: fino al primo match non viene modificata
+            for (int k = 0; k < pendingArrivals.size(); k++) {
+                if (tryMatch(postiOf(k))) {
+                    removePending(k);
+                    totalMatched++;
+                    servedSomething = true;
+                    break;  // esco dal for per ripartire da capo
+                }
+            }
 
-                        matched = true;
+        } while (servedSomething);
 
-                    }
-                }
 
-                // 2) server inattivi
-                if (!matched) {
-                    r.selectStream(4); // stream 4 per match con server inattivi
-                    for (int i = 1; i <= SERVERS && !matched; i++) {
-                        if (event[i].x == 0
-                                && event[i].capacitàRimanente >= req.postiRichiesti && r.random() < P_MATCH_IDLE) {
-
-                            double svc = getServiceTime();
-                            event[i].t = clock.current + svc;
-                            event[i].svc = (event[i].svc * event[i].numRichiesteServite + svc)
-                                    / (event[i].numRichiesteServite + 1);
-                            event[i].numRichiesteServite++;
-                            event[i].x = 1;
-                            event[i].capacitàRimanente -= req.postiRichiesti;
-                            event[i].postiRichiesti += req.postiRichiesti;
-
-                            matched = true;
-
-                        }
-                    }
-                }
+        return totalMatched;
+    }
 
 
-                if (matched) {
-                    // rimuovo dal pending e aggiorno contatori
-                    pendingArrivals.remove(req);
+    /**
+     * Assegna in blocco le richieste raccolte nella finestra appena chiusa, in
+     * ordine di posti richiesti decrescenti (first-fit decreasing): ciascuna
+     * prova i veicoli idonei come in findOne, prima quelli in servizio e poi
+     * quelli liberi. Le richieste non assegnate attendono la finestra successiva.
+     * @return numero di richieste servite
+     */
+    public int matchBatch() {
+        int totalMatched = 0;
+        for (int posti = MAX_POSTI; posti >= 1; posti--) {
+            for (int k = 0; k < pendingArrivals.size(); k++) {
+                if (postiOf(k) == posti && tryMatch(posti)) {
+                    removePending(k);   // rimuove k o una richiesta equivalente prima di k
+                    k--;
                     totalMatched++;
-                    servedSomething = true;
-                    break;  // esco dal for(snapshot) per ripartire da capo
                 }
             }
+        }
+        return totalMatched;
+    }
 
-        } while (servedSomething);
-
+    // Posti della richiesta pendente k
+    private int postiOf(int k) {
+        int posti = pendingArrivals.getPosti(k);
+        return posti == POSTI_ARRIVO ? postiRichiesti[ARRIVAL] : posti;
+    }
 
-        return totalMatched;
+    // Rimuove la richiesta pendente k (le richieste d'arrivo sono equivalenti: tolgo la prima)
+    private void removePending(int k) {
+        pendingArrivals.remove(pendingArrivals.getPosti(k) == POSTI_ARRIVO
+                ? pendingArrivals.indexOf(POSTI_ARRIVO) : k);
     }
 
+    /**
+     * Cerca un veicolo per una richiesta di posti posti: un tentativo per ogni
+     * veicolo idoneo in ordine, prima fra quelli attivi (P_MATCH_BUSY), poi fra
+     * quelli inattivi (P_MATCH_IDLE).
+     * @return true se la richiesta è stata assegnata
+     */
+    private boolean tryMatch(int posti) {
+        for (int i = fleet.nextBusy(posti, 1); i >= 0; i = fleet.nextBusy(posti, i + 1)) {
+            if (matchBusy.random() < P_MATCH_BUSY) {
+                assign(i, posti);
+                return true;
+            }
+        }
+        for (int i = fleet.nextIdle(posti, 1); i >= 0; i = fleet.nextIdle(posti, i + 1)) {
+            if (matchIdle.random() < P_MATCH_IDLE) {
+                assign(i, posti);
+                return true;
+            }
+        }
+        return false;
+    }
 
-    @Override
-    public void setArrivalEvent(MsqEvent event) {
-        //non utilizzato in questo tipo di centro
+    // Assegna al veicolo i una richiesta di posti posti e ne aggiorna l'indice
+    private void assign(int i, int posti) {
+        fleet.remove(i, active[i] == 1, capacitàRimanente[i]);
+        double svc = getServiceTime();
+        time[i] = clock.current + svc;
+        svcMedio[i] = (svcMedio[i] * numRichiesteServite[i] + svc)
+                / (numRichiesteServite[i] + 1);
+        numRichiesteServite[i]++;
+        active[i] = 1;
+        capacitàRimanente[i] -= posti;
+        postiRichiesti[i] += posti;
+        schedule(i);
+        fleet.add(i, true, capacitàRimanente[i]);
     }
 
     @Override
-    public void addNumber() {
+    public void setArrivalEvent(MsqEvent event) {
         //non utilizzato in questo tipo di centro
     }
 
@@ -185,9 +275,10 @@ public class RideSharingMultiserverNode implements Node{
 
     // Avanza la simulazione di questo nodo fino all'evento scelto
     // e restituisce eventuale DEPARTURE schedulato (server index), oppure -1.
+    // Va invocato sul nodo proprietario della testa della FEL.
     public int processNextEvent(double t) {
-        int e = peekNextEventType();
-        clock.next = event[e].t;
+        int e = fel.peekEvent();
+        clock.next = e == MATCH ? nextMatch : time[e];
 
         // integrazione area
         area += (clock.next - clock.current) * number;
@@ -197,122 +288,114 @@ public class RideSharingMultiserverNode implements Node{
             // ARRIVAL “esterno” o da routing
             number++;
             // programma il prossimo ARRIVAL esterno
-            event[ARRIVAL].t = getNextArrivalTime();
-            event[ARRIVAL].postiRichiesti = getNumPosti();
-            pendingArrivals.add(event[ARRIVAL]);
+            time[ARRIVAL] = getNextArrivalTime();
+            postiRichiesti[ARRIVAL] = getNumPosti();
+            schedule(ARRIVAL);
+            pendingArrivals.add(time[ARRIVAL], POSTI_ARRIVO);
 
+            // richieste aggiuntive entro TIME_WINDOW, accodate in testa in ordine
             int i = 0;
             while (true) {
-                pendingArrivals.add(i, new MsqEvent());
-                pendingArrivals.get(i).t = getNextArrivalTime();
-                pendingArrivals.get(i).x = 1;
-                pendingArrivals.get(i).postiRichiesti = getNumPosti();
-                if (pendingArrivals.get(i).t > clock.current + TIME_WINDOW){
-                    pendingArrivals.remove(i);
+                double tReq = getNextArrivalTime();
+                int postiReq = getNumPosti();
+                if (tReq > clock.current + TIME_WINDOW){
                     break;
                 }
-                // Seleziono uno stream dedicato per probabilità di perdita/feedback
-                r.selectStream(5);
-                double pLoss = r.random();
-                if (pLoss < P_EXIT) {
-                    pendingArrivals.remove(i);
+                // stream dedicato per probabilità di perdita/feedback
+                int outcome = OUTCOME.sample(loss.random());
+                if (outcome == OUT_EXIT) {
                     return -1;
-                } else if (pLoss < P_EXIT + FEEDBACK) {
-                    system.generateFeedback(pendingArrivals.get(i));
-                    pendingArrivals.remove(i);
+                } else if (outcome == OUT_FEEDBACK) {
+                    feedback.t = tReq;
+                    feedback.x = 1;
+                    feedback.postiRichiesti = postiReq;
+                    system.generateFeedback(feedback);
                     return -1;
                 }else{
+                    pendingArrivals.insert(i, tReq, postiReq);
                     number++;
                     i++;
                 }
             }
 
-            findOne();
+            if (policy == MatchingPolicy.GREEDY) findOne();
+
+        } else if (e == MATCH) {
+            // fine finestra: assegnazione in blocco delle richieste raccolte
+            matchBatch();
+            nextMatch += TIME_WINDOW;
+            fel.schedule(base + MATCH, nextMatch);
 
         } else {
             // DEPARTURE da server e
             int serverIndex = e-1;
-            sum[serverIndex].service += event[e].svc;
-            sum[serverIndex].served += event[e].numRichiesteServite;
-            index += event[e].numRichiesteServite;
-            number-=event[e].numRichiesteServite;
-            event[e].x = 0;
-            event[e].capacitàRimanente = event[e].capacità;
-            event[e].numRichiesteServite = 0;
-            event[e].postiRichiesti = 0;
+            service[serverIndex] += svcMedio[e];
+            served[serverIndex] += numRichiesteServite[e];
+            index += numRichiesteServite[e];
+            number-=numRichiesteServite[e];
+            fleet.remove(e, true, capacitàRimanente[e]);
+            active[e] = 0;
+            fel.cancel(base + e);
+            capacitàRimanente[e] = capacità[e];
+            fleet.add(e, false, capacità[e]);
+            numRichiesteServite[e] = 0;
+            postiRichiesti[e] = 0;
         }
         return -1;
     }
 
+    /**
+     * Limite inferiore (stretto) dei tempi dei feedback futuri: i feedback
+     * nascono solo processando un ARRIVAL e hanno tempi successivi al nuovo
+     * arrivo campionato, quindi al prossimo arrivo già in FEL.
+     */
+    public double getFeedbackHorizon() {
+        return time[ARRIVAL];
+    }
+
     // Espone il prossimo evento attivo
     public double peekNextEventTime() {
-        double tmin = Double.POSITIVE_INFINITY;
+        double tmin = policy == MatchingPolicy.BATCH ? nextMatch : Double.POSITIVE_INFINITY;
         for (int i = 0; i <= SERVERS; i++)
-            if (event[i].x == 1 && event[i].t < tmin)
-                tmin = event[i].t;
+            if (active[i] == 1 && time[i] < tmin)
+                tmin = time[i];
         return tmin;
     }
 
     public int peekNextEventType() {
-        int best = -1;
-        double tmin = Double.POSITIVE_INFINITY;
+        int best = policy == MatchingPolicy.BATCH ? MATCH : -1;
+        double tmin = policy == MatchingPolicy.BATCH ? nextMatch : Double.POSITIVE_INFINITY;
         for (int i = 0; i <= SERVERS; i++)
-            if (event[i].x == 1 && event[i].t < tmin) {
-                tmin = event[i].t;
+            if (active[i] == 1 && time[i] < tmin) {
+                tmin = time[i];
                 best = i;
             }
         return best;
     }
 
     public double getNextArrivalTime() {
-        r.selectStream(0);
-        double lambda = 1.65 * 0.3;
-        sarrival += exponential(1/lambda, r);
+        r.selectStream(streamBase);
+        sarrival += arrivals.sample(r);
         return sarrival;
     }
 
 
-    //dovrebbe restituire valore gaussiana troncata tra a e b
+    // di default gaussiana N(20, 2) troncata tra a = 1 e b = 60, più il ritardo DELAY
     public double getServiceTime() {
-        r.selectStream(1);
-        //return uniform(2.0, 10.0, r);
-        double alpha;
-        double beta;
-        double a = 1;
-        double b = 60;
-
-        alpha = cdfNormal(20.0, 2.0, a);
-        beta = cdfNormal(20.0, 2.0, b);
-
-        double u = uniform(alpha, beta, r);
-        //System.out.println("Servizio: " + idfNormal(30, 2.0, u)+DELAY);
-        return (idfNormal(20.0, 2.0, u)+DELAY);
+        r.selectStream(streamBase + 1);
+        return (services.sample(r)+DELAY);
     }
 
 
+    // posti richiesti, dallo stream già selezionato per gli arrivi
     public int getNumPosti(){
-        double rand = r.random();
-        if(rand<0.4){
-            return 1;
-        }else if (rand<0.7){
-            return 2;
-        }else if (rand<0.8){
-            return 3;
-        }else if (rand<0.85){
-            return 4;
-        }else if (rand<0.9){
-            return 5;
-        }else if (rand<0.95){
-            return 6    ;
-        }else{
-            return 7;
-        }
+        return POSTI.sample(r) + 1;
     }
 
 
     // Metodi per statistiche a fine run
     public double getAvgInterArrival() {
-        return event[ARRIVAL].t / index;
+        return time[ARRIVAL] / index;
     }
 
     public double getAvgResponse() {
@@ -335,14 +418,14 @@ public class RideSharingMultiserverNode implements Node{
     }
 
     /**
-     * Restituisce il servizio erogato (somma di sum[s].service) da
+     * Restituisce il servizio erogato (somma di service[s]) da
      * quando è stato registrato l'ultimo batch, e aggiorna il marcatore.
      */
     public double getIncrementalServiceTime() {
         // calcola il servizio totale corrente:
         double totalService = 0.0;
         for (int s = 1; s <= SERVERS; s++) {
-            totalService += sum[s].service;
+            totalService += service[s];
         }
         // differenza rispetto a quando è iniziato l'ultimo batch
         double delta = totalService - lastTotalService;
@@ -382,7 +465,7 @@ public class RideSharingMultiserverNode implements Node{
         // Somma del tempo di servizio erogato da ciascun server
         double busyTime = 0.0;
         for (int s = 1; s <= SERVERS; s++) {
-            busyTime += sum[s].service;
+            busyTime += service[s];
         }
         // Capacità totale di posti (seat‐time per unità di tempo)
         int totalSeats = SERVER_SMALL * 3
@@ -402,15 +485,15 @@ public class RideSharingMultiserverNode implements Node{
         this.clock.current = 0.0;
         this.clock.next = 0.0;
         this.lastTotalService = 0.0;
-        // reset sum per server
-        for (MsqSum s : sum) {
-            s.service = 0.0;
-            s.served  = 0;
-        }
+        // reset somme per server
+        Arrays.fill(service, 0.0);
+        Arrays.fill(served, 0);
         // rischedula primo arrivo
-        event[ARRIVAL].t = getNextArrivalTime();
-        event[ARRIVAL].x = 1;
-        event[ARRIVAL].postiRichiesti = getNumPosti();
+        time[ARRIVAL] = getNextArrivalTime();
+        active[ARRIVAL] = 1;
+        postiRichiesti[ARRIVAL] = getNumPosti();
+        schedule(ARRIVAL);
+        scheduleFirstWindow();
         // svuota la coda pendente
         pendingArrivals.clear();
     }
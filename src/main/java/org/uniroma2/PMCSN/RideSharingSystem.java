@@ -1,12 +1,28 @@
 package org.uniroma2.PMCSN;
 
-import org.uniroma2.PMCSN.Libs.Rngs;
+import org.uniroma2.PMCSN.Estimators.EstimatorSet;
+import org.uniroma2.PMCSN.Estimators.VarianceEstimator;
+import org.uniroma2.PMCSN.Libs.RandomSource;
+import org.uniroma2.PMCSN.Utils.AdaptiveBatchMeans;
+import org.uniroma2.PMCSN.Utils.BatchSink;
 import org.uniroma2.PMCSN.Utils.FileCSVGenerator;
+import org.uniroma2.PMCSN.Utils.MserTruncation;
+import org.uniroma2.PMCSN.Utils.OutputAnalysis;
+import org.uniroma2.PMCSN.Utils.ReplicaReport;
 import org.uniroma2.PMCSN.Utils.ReplicationStats;
+import org.uniroma2.PMCSN.Utils.StoppingRule;
+import org.uniroma2.PMCSN.Utils.WarmupDeletion;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
 
 public class RideSharingSystem implements Sistema {
     // Numero di centri semplici nel sistema
@@ -17,175 +33,262 @@ public class RideSharingSystem implements Sistema {
     private static final int REPLICAS = 4;
     // Tempo di stop della simulazione (orizzonte finito)
     private static final double STOP = 10000.0;
+    // Reporting a intervalli (orizzonte finito): con il warm-up fisso nulla viene scritto per t ≤ WARMUP
+    private static final double REPORT_INTERVAL = 50.0;
+    private static final double WARMUP = 200.0;                // elimina primo transient
     // Numero di server configurati per ciascun nodo semplice
     public static final Integer[] SERVERS_SIMPLE = {
             27,
             9,
             9
     };
-    private Rngs rng;
-    private static final List<Node> nodes = new ArrayList<>(4);
+    // centro semplice che riceve un feedback, per posti richiesti:
+    // fino a 3 posti il primo, 4 posti il secondo, oltre il terzo
+    private static final int[] FEEDBACK_TARGET = new int[RideSharingMultiserverNode.MAX_POSTI + 1];
 
-    public RideSharingSystem(){
+    static {
+        for (int posti = 0; posti < FEEDBACK_TARGET.length; posti++) {
+            FEEDBACK_TARGET[posti] = posti < 4 ? 0 : posti == 4 ? 1 : 2;
+        }
+    }
+    // Nodi della simulazione in corso: destinazione dei feedback di generateFeedback.
+    // Ogni replica usa una propria istanza del sistema, quindi i propri nodi.
+    private final List<Node> nodes = new ArrayList<>(SIMPLE_CENTERS + RIDE_CENTERS);
+    // Motore conservativo: canali verso i centri semplici (null nel ciclo eventi unico)
+    private Channel[] channels;
+    private final SimulationConfig config;
+    // Motore ottimistico: rollback di tutte le repliche, condivisi fra le istanze
+    private final LongAdder rollbacks;
 
-        rng = new Rngs();
+    public RideSharingSystem(){
+        this(new SimulationConfig());
+    }
 
-        //istanza 3 centri semplici
-        for (int i = 0; i < SIMPLE_CENTERS; i++) {
-            SimpleMultiserverNode center = new SimpleMultiserverNode(this, i, SERVERS_SIMPLE[i], rng);
-            nodes.add(center);
-        }
+    public RideSharingSystem(SimulationConfig config){
+        this(config, new LongAdder());
+    }
 
-        // istanza centro ride sharing
-        for (int j = 0; j < RIDE_CENTERS; j++) {
-            RideSharingMultiserverNode rideNode = new RideSharingMultiserverNode(rng, this);
-            nodes.add(rideNode);
-        }
+    private RideSharingSystem(SimulationConfig config, LongAdder rollbacks){
+        this.config = config;
+        this.rollbacks = rollbacks;
     }
 
 
     @Override
     public void runFiniteSimulation() {
-        final double REPORT_INTERVAL = 50.0;
-        final int    SYSTEM_INDEX    = -1;
-        final double WARMUP = 200.0;                // elimina primo transient
-        // NON scrivere nulla per t ≤ WARMUP
-
-
-        for (int rep = 1; rep <= REPLICAS; rep++) {
-            // 1) Inizializza RNG
-            rng = new Rngs();
-            rng.plantSeeds(rep);
-
-            // 2) Ricrea i nodi "puliti" per questa replica
-            List<Node> localNodes = new ArrayList<>();
-            for (int i = 0; i < SIMPLE_CENTERS; i++) {
-                SimpleMultiserverNode n = new SimpleMultiserverNode(this, i, SERVERS_SIMPLE[i], rng);
-                n.resetState();
-                localNodes.add(n);
-            }
-            for (int j = 0; j < RIDE_CENTERS; j++) {
-                RideSharingMultiserverNode n = new RideSharingMultiserverNode(rng, this);
-                n.resetState();
-                localNodes.add(n);
-            }
+        if (config.getEngine() == SimulationConfig.Engine.PARALLEL_NODES) {
+            System.out.println("I nodi si scambiano job tramite feedback: simulazione a ciclo eventi unico");
+        }
+        // Repliche indipendenti (eventualmente in parallelo), scritte in ordine
+        ReplicationRunner.run(config, REPLICAS,
+                rep -> new RideSharingSystem(config, rollbacks).runReplica(rep),
+                ReplicaReport::write);
+        if (config.getEngine() == SimulationConfig.Engine.OPTIMISTIC) {
+            System.out.printf("Time Warp: %d rollback in %d repliche (%.1f per replica)%n",
+                    rollbacks.sum(), REPLICAS, (double) rollbacks.sum() / REPLICAS);
+        }
+    }
 
-            // 3) Prepara il reporting a intervalli
-            double nextReportTime = WARMUP + REPORT_INTERVAL;
-
-            // 4) Loop eventi fino a STOP
-            while (true) {
-                // trova il prossimo evento
-                double tmin = Double.POSITIVE_INFINITY;
-                int idx = 0;
-                for (int i = 0; i < localNodes.size(); i++) {
-                    double t = localNodes.get(i).peekNextEventTime();
-                    if (t < tmin) {
-                        tmin = t;
-                        idx  = i;
-                    }
-                }
+    /** Esegue la replica rep ad orizzonte finito sui nodi di questa istanza. */
+    private ReplicaReport runReplica(int rep) {
+        if (config.getEngine() == SimulationConfig.Engine.CONSERVATIVE
+                || config.getEngine() == SimulationConfig.Engine.OPTIMISTIC) {
+            return report(rep, runLogicalProcesses(rep));
+        }
 
-                // se non ci sono più eventi e ho già superato STOP e l'ultimo report
-                if (tmin > STOP && nextReportTime > STOP) {
-                    break;
-                }
+        // 1) Inizializza RNG
+        RandomSource rng = config.newReplicaSource(rep);
 
-                // caso report prima del prossimo evento
-                if (nextReportTime <= tmin) {
-                    // integra tutti i nodi fino a nextReportTime
-                    for (Node n : localNodes) {
-                        n.integrateTo(nextReportTime);
-                    }
-
-                    // --- Statistiche GLOBALI ---
-                    double cumArea      = 0.0;
-                    long   cumJobs      = 0;
-                    double cumAreaQueue = 0.0;
-                    /* long cumQJobs= 0; // non più usato per ETq */
-                    for (Node n : localNodes) {
-                        cumArea      += n.getArea();
-                        cumJobs      += n.getProcessedJobs();
-                        cumAreaQueue += n.getAreaQueue();
-                    }
-                    double cumETs = cumJobs > 0 ? cumArea / cumJobs : 0.0;
-                    double cumENs = cumArea / nextReportTime;
-                    double cumETq = cumJobs > 0 ? cumAreaQueue / cumJobs : 0.0;
-                    double cumENq = cumAreaQueue / nextReportTime;
-                    double cumRho = localNodes.stream()
-                            .mapToDouble(Node::getUtilization)
-                            .average()
-                            .orElse(0.0);
-
-                    // scrivo la riga GLOBAL
-                    FileCSVGenerator.writeIntervalData(
-                            true,           // global flag
-                            rep,
-                            SYSTEM_INDEX,   // -1 per sistema globale
-                            nextReportTime,
-                            cumETs, cumENs, cumETq, cumENq, cumRho
-                    );
+        // 2) Ricrea i nodi "puliti" e la lista eventi futuri per questa replica
+        EventSet fel = config.newEventSet();
+        nodes.clear();
+        for (int i = 0; i < SIMPLE_CENTERS; i++) {
+            SimpleMultiserverNode n = new SimpleMultiserverNode(this, i, SERVERS_SIMPLE[i], rng, fel,
+                    config.getArrivalSampler(i), config.getServiceSampler(i));
+            n.resetState();
+            nodes.add(n);
+        }
+        for (int j = 0; j < RIDE_CENTERS; j++) {
+            RideSharingMultiserverNode n = new RideSharingMultiserverNode(this, SIMPLE_CENTERS + j, rng, fel,
+                    config.getMatchingPolicy(), config.getRideServers(),
+                    config.getArrivalSampler(SIMPLE_CENTERS + j), config.getServiceSampler(SIMPLE_CENTERS + j));
+            n.resetState();
+            nodes.add(n);
+        }
 
-                    // --- Statistiche per ciascun NODO ---
-                    for (int i = 0; i < localNodes.size(); i++) {
-                        Node n = localNodes.get(i);
-
-                        double area_i      = n.getArea();
-                        long   jobs_i      = n.getProcessedJobs();
-                        double areaQ_i     = n.getAreaQueue();
-                        //long   qJobs_i     = n.getQueueJobs(); // non usato per ETq
-                        double ETs_i       = jobs_i > 0 ? area_i / jobs_i : 0.0;
-                        double ENs_i       = area_i / nextReportTime;
-                        double ETq_i       = jobs_i > 0 ? areaQ_i / jobs_i : 0.0;
-                        double ENq_i       = areaQ_i / nextReportTime;
-                        double rho_i       = n.getUtilization();
-
-                        // scrivo la riga per il nodo i
-                        FileCSVGenerator.writeIntervalData(
-                                true,      // nodo-level flag
-                                rep,
-                                i,          // SYSTEM_INDEX = indice del nodo
-                                nextReportTime,
-                                ETs_i, ENs_i, ETq_i, ENq_i, rho_i
-                        );
-                    }
-
-                    // avanza il reporting
-                    nextReportTime += REPORT_INTERVAL;
-                    continue;
-                }
+        // 3) Loop eventi fino a STOP con reporting a intervalli
+        NodeTrace[] traces = NodeTrace.simulate(fel, nodes, firstReport(), REPORT_INTERVAL, STOP);
+        return report(rep, traces);
+    }
 
-                // altrimenti processo il prossimo evento
-                if (tmin <= STOP) {
-                    localNodes.get(idx).processNextEvent(tmin);
-                } else {
-                    break;
-                }
+    /**
+     * Replica rep con un processo logico per nodo. Il centro ride-sharing è
+     * l'unica sorgente di feedback: invia i job ai centri semplici tramite
+     * Channel, usando come lookahead il prossimo arrivo già campionato.
+     * I centri semplici attendono l'orizzonte del canale (CONSERVATIVE)
+     * oppure avanzano speculativamente con rollback (OPTIMISTIC).
+     */
+    private NodeTrace[] runLogicalProcesses(int rep) {
+        boolean optimistic = config.getEngine() == SimulationConfig.Engine.OPTIMISTIC;
+        channels = new Channel[SIMPLE_CENTERS];
+        List<Callable<NodeTrace>> lps = new ArrayList<>(SIMPLE_CENTERS + RIDE_CENTERS);
+        List<TimeWarpProcess<?>> warps = new ArrayList<>(SIMPLE_CENTERS);
+        nodes.clear();
+        for (int i = 0; i < SIMPLE_CENTERS; i++) {
+            EventSet fel = config.newEventSet();
+            channels[i] = new Channel();
+            SimpleMultiserverNode n = new SimpleMultiserverNode(this, i, SERVERS_SIMPLE[i], config.newReplicaSource(rep), fel,
+                    config.getArrivalSampler(i), config.getServiceSampler(i));
+            n.resetState();
+            nodes.add(n);
+            if (optimistic) {
+                TimeWarpProcess<?> lp = new TimeWarpProcess<>(n, fel, channels[i], firstReport(), REPORT_INTERVAL, STOP);
+                warps.add(lp);
+                lps.add(lp);
+            } else {
+                lps.add(new LogicalProcess(n, fel, channels[i], List.of(), null,
+                        firstReport(), REPORT_INTERVAL, STOP));
             }
+        }
+
+        // orizzonte dei canali: il minimo fra i prossimi arrivi dei centri ride
+        List<Channel> outputs = List.of(channels);
+        List<RideSharingMultiserverNode> rides = new ArrayList<>(RIDE_CENTERS);
+        DoubleSupplier horizon = () -> {
+            double h = Double.POSITIVE_INFINITY;
+            for (RideSharingMultiserverNode n : rides) h = Math.min(h, n.getFeedbackHorizon());
+            return h;
+        };
+        for (int j = 0; j < RIDE_CENTERS; j++) {
+            EventSet fel = config.newEventSet();
+            RideSharingMultiserverNode n = new RideSharingMultiserverNode(this, SIMPLE_CENTERS + j, config.newReplicaSource(rep), fel,
+                    config.getMatchingPolicy(), config.getRideServers(),
+                    config.getArrivalSampler(SIMPLE_CENTERS + j), config.getServiceSampler(SIMPLE_CENTERS + j));
+            n.resetState();
+            nodes.add(n);
+            rides.add(n);
+            lps.add(new LogicalProcess(n, fel, null, outputs, horizon,
+                    firstReport(), REPORT_INTERVAL, STOP));
+        }
+
+        // un thread per processo: i processi si attendono a vicenda
+        ExecutorService executor = Executors.newFixedThreadPool(lps.size());
+        try {
+            List<Future<NodeTrace>> futures = executor.invokeAll(lps);
+            NodeTrace[] traces = new NodeTrace[futures.size()];
+            for (int i = 0; i < traces.length; i++) traces[i] = futures.get(i).get();
+            for (TimeWarpProcess<?> lp : warps) rollbacks.add(lp.getRollbacks());
+            return traces;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Processi logici interrotti", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Processo logico fallito", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
-            // 5) statistiche finali di replica (globali)
-            double procSum = 0.0, respSum = 0.0;
-            for (Node n : localNodes) {
-                procSum += n.getProcessedJobs();
-                respSum += n.getAvgResponse();
+    /** Primo tempo di report: con MSER-5 si registra da subito, il warm-up viene scelto sulla traccia. */
+    private double firstReport() {
+        return config.getWarmup() == SimulationConfig.Warmup.FIXED ? WARMUP + REPORT_INTERVAL : REPORT_INTERVAL;
+    }
+
+    /** Costruisce le righe di report (globali e per nodo) di una replica. */
+    private ReplicaReport report(int rep, NodeTrace[] traces) {
+        final int SYSTEM_INDEX = -1;
+        MserTruncation mser = config.getWarmup() == SimulationConfig.Warmup.MSER5
+                ? NodeTrace.deleteWarmup(traces) : null;
+
+        ReplicaReport report = new ReplicaReport(rep);
+        for (int k = 0; k < traces[0].size(); k++) {
+            double t = traces[0].getTime(k);
+            double elapsed = t - traces[0].getStart();   // durata dopo il warm-up eliminato
+
+            // --- Statistiche GLOBALI ---
+            double cumArea      = 0.0;
+            long   cumJobs      = 0;
+            double cumAreaQueue = 0.0;
+            /* long cumQJobs= 0; // non più usato per ETq */
+            for (NodeTrace n : traces) {
+                cumArea      += n.getArea(k);
+                cumJobs      += n.getJobs(k);
+                cumAreaQueue += n.getAreaQueue(k);
+            }
+            final int kk = k;
+            double cumETs = cumJobs > 0 ? cumArea / cumJobs : 0.0;
+            double cumENs = cumArea / elapsed;
+            double cumETq = cumJobs > 0 ? cumAreaQueue / cumJobs : 0.0;
+            double cumENq = cumAreaQueue / elapsed;
+            double cumRho = Arrays.stream(traces)
+                    .mapToDouble(n -> n.getUtilization(kk))
+                    .average()
+                    .orElse(0.0);
+
+            // scrivo la riga GLOBAL
+            report.addInterval(
+                    SYSTEM_INDEX,   // -1 per sistema globale
+                    t,
+                    cumETs, cumENs, cumETq, cumENq, cumRho
+            );
+
+            // --- Statistiche per ciascun NODO ---
+            for (int i = 0; i < traces.length; i++) {
+                NodeTrace n = traces[i];
+
+                double area_i      = n.getArea(k);
+                long   jobs_i      = n.getJobs(k);
+                double areaQ_i     = n.getAreaQueue(k);
+                double ETs_i       = jobs_i > 0 ? area_i / jobs_i : 0.0;
+                double ENs_i       = area_i / elapsed;
+                double ETq_i       = jobs_i > 0 ? areaQ_i / jobs_i : 0.0;
+                double ENq_i       = areaQ_i / elapsed;
+                double rho_i       = n.getUtilization(k);
+
+                // scrivo la riga per il nodo i
+                report.addInterval(
+                        i,          // SYSTEM_INDEX = indice del nodo
+                        t,
+                        ETs_i, ENs_i, ETq_i, ENq_i, rho_i
+                );
             }
-            double avgProc = procSum / localNodes.size();
-            double avgResp = respSum / localNodes.size();
+        }
+
+        // statistiche finali di replica (globali)
+        double procSum = 0.0, respSum = 0.0;
+        for (NodeTrace n : traces) {
+            procSum += n.getProcessedJobs();
+            respSum += n.getAvgResponse();
+        }
+        double avgProc = procSum / traces.length;
+        double avgResp = respSum / traces.length;
 
-            System.out.println("=== RideSharingSystem (Finite) replica " + rep + " ===");
-            System.out.printf(" Avg jobs: %.2f, Avg response: %.2f%n", avgProc, avgResp);
+        report.println("=== RideSharingSystem (Finite) replica " + rep + " ===");
+        report.println(String.format(" Avg jobs: %.2f, Avg response: %.2f", avgProc, avgResp));
+        if (config.isAntithetic() && rep % 2 == 0) {
+            report.println(" (antitetica della replica " + (rep - 1) + ")");
         }
+        if (mser != null) {
+            report.println(String.format(" Warm-up MSER-5: eliminati %d intervalli (t ≤ %.1f)%s",
+                    mser.truncation(), traces[0].getStart(),
+                    mser.isResolved() ? "" : ", minimo a metà orizzonte: transitorio forse non esaurito"));
+        }
+        return report;
     }
 
     @Override
     public void runInfiniteSimulation() {
         final int BATCH_SIZE   = 256;
         final int N_BATCHES    = 64;
+        final int SUB_BATCHES  = 16;   // sotto-batch per batch, per gli stimatori OBM/STS
         final int TOTAL_NODES  = SIMPLE_CENTERS + RIDE_CENTERS;
 
         System.out.println("=== RideSharingSystem (Infinite Simulation – Batch Means – Per‑Node Cumulative) ===");
-        System.out.printf("Nodi: %d (simple=%d, ride=%d), Batch size: %d, #Batch totali: %d%n",
-                TOTAL_NODES, SIMPLE_CENTERS, RIDE_CENTERS, BATCH_SIZE, N_BATCHES);
+        // senza regola di arresto N_BATCHES fissi, altrimenti fino alla precisione richiesta
+        StoppingRule rule = config.getStoppingRule();
+        System.out.printf("Nodi: %d (simple=%d, ride=%d), Batch size: %d, #Batch totali: %s%n",
+                TOTAL_NODES, SIMPLE_CENTERS, RIDE_CENTERS, BATCH_SIZE,
+                rule == null ? N_BATCHES : "al più " + rule.getMaxBatches());
 
         // 1) CSV globale (medie cumulative)
         FileCSVGenerator.writeInfiniteGlobal(0, 0, 0, 0, 0, 0);
@@ -194,14 +297,17 @@ public class RideSharingSystem implements Sistema {
         ReplicationStats replicationStats = new ReplicationStats();
 
         // 2) Inizializza RNG e nodi
-        Rngs rng = new Rngs();
-        rng.plantSeeds(1);
-        List<Node> nodesLoc = new ArrayList<>(TOTAL_NODES);
+        RandomSource rng = config.newReplicaSource(1);
+        EventSet fel = config.newEventSet();
+        nodes.clear();
         for (int i = 0; i < SIMPLE_CENTERS; i++) {
-            nodesLoc.add(new SimpleMultiserverNode(this, i, SERVERS_SIMPLE[i], rng));
+            nodes.add(new SimpleMultiserverNode(this, i, SERVERS_SIMPLE[i], rng, fel,
+                    config.getArrivalSampler(i), config.getServiceSampler(i)));
         }
         for (int j = 0; j < RIDE_CENTERS; j++) {
-            nodesLoc.add(new RideSharingMultiserverNode(rng, this));
+            nodes.add(new RideSharingMultiserverNode(this, SIMPLE_CENTERS + j, rng, fel,
+                    config.getMatchingPolicy(), config.getRideServers(),
+                    config.getArrivalSampler(SIMPLE_CENTERS + j), config.getServiceSampler(SIMPLE_CENTERS + j)));
         }
 
         // 3) Marker per delta batch globali e per‑nodo
@@ -225,25 +331,42 @@ public class RideSharingSystem implements Sistema {
         int completions = 0;
         double startBatch = 0.0, endBatch = 0.0;
 
+        // i batch arrivano a replicationStats passando per gli stadi attivi:
+        // eliminazione del warm-up, poi scelta della dimensione
+        AdaptiveBatchMeans sizer = config.isAdaptiveBatchSize() ? new AdaptiveBatchMeans(replicationStats, N_BATCHES) : null;
+        BatchSink sink = sizer != null ? sizer : replicationStats;
+        WarmupDeletion warmup = config.getWarmup() == SimulationConfig.Warmup.MSER5 ? new WarmupDeletion(sink) : null;
+        if (warmup != null) {
+            sink = warmup;
+        }
+        // OBM e STS usano sotto-batch di SUB_BATCH job processati (e della durata media
+        // corrispondente); partono quando warm-up e dimensione dei batch sono stabiliti
+        final int SUB_BATCH = BATCH_SIZE / SUB_BATCHES;
+        boolean subBatched = config.getEstimator() != VarianceEstimator.Type.BATCH_MEANS;
+        SubBatches subBatches = null;
+        OutputAnalysis analysis = replicationStats;
+        boolean done = false;
+
         // 7) Ciclo di simulazione a batch
-        while (batchCount < N_BATCHES) {
-            double tnext = Double.POSITIVE_INFINITY;
-            Node chosen = null;
-            for (Node n : nodesLoc) {
-                double t = n.peekNextEventTime();
-                if (t < tnext) {
-                    tnext = t;
-                    chosen = n;
-                }
+        while (!done) {
+            double tnext = fel.peekTime();
+            Node chosen = fel.peekNode();
+            // Sotto-batch per tempo che terminano prima del prossimo evento (solo OBM/STS)
+            if (subBatches != null) {
+                subBatches.advanceTo(tnext);
             }
-            for (Node n : nodesLoc) n.integrateTo(tnext);
+            for (Node n : nodes) n.integrateTo(tnext);
 
             assert chosen != null;
+            long processedBefore = chosen.getProcessedJobs();
             if (chosen.processNextEvent(tnext) >= 0) {
                 if (completions == 0) startBatch = tnext;
                 completions++;
                 endBatch = tnext;
             }
+            if (subBatches != null) {
+                subBatches.processed(chosen.getProcessedJobs() - processedBefore);
+            }
 
             if (completions >= BATCH_SIZE) {
                 batchCount++;
@@ -256,7 +379,7 @@ public class RideSharingSystem implements Sistema {
                 double sumUtil       = 0.0;
 
                 for (int i = 0; i < TOTAL_NODES; i++) {
-                    Node node = nodesLoc.get(i);
+                    Node node = nodes.get(i);
                     double a    = node.getArea();
                     double aq   = node.getAreaQueue();
                     long   pj   = node.getProcessedJobs();
@@ -278,7 +401,7 @@ public class RideSharingSystem implements Sistema {
                 double batchRho = sumUtil / TOTAL_NODES;
 
                 // Aggiunge batch-means alla struttura statistica
-                replicationStats.insert(batchETs, batchENs, batchETq, batchENq, batchRho);
+                sink.insert(batchETs, batchENs, batchETq, batchENq, batchRho);
 
                 // 9) Aggiorna cumulativi globali e salva
                 cumETs += batchETs;
@@ -298,7 +421,7 @@ public class RideSharingSystem implements Sistema {
 
                 // 10) Statistiche per‑nodo cumulative
                 for (int i = 0; i < TOTAL_NODES; i++) {
-                    Node node = nodesLoc.get(i);
+                    Node node = nodes.get(i);
                     long pj     = node.getProcessedJobs();
                     double a    = node.getArea();
                     double aq   = node.getAreaQueue();
@@ -338,26 +461,49 @@ public class RideSharingSystem implements Sistema {
                 lastAreaSys      = areaSys;
                 lastAreaQueueSys = areaQueueSys;
                 completions      = 0;
+                if (subBatched && subBatches == null
+                        && (warmup == null || warmup.isDecided()) && (sizer == null || sizer.isAccepted())) {
+                    EstimatorSet estimators = new EstimatorSet(config.getEstimator(),
+                            SUB_BATCHES * (sizer != null ? sizer.getSize() : 1));
+                    subBatches = new SubBatches(nodes, estimators, SUB_BATCH, tnext);
+                    analysis = estimators;
+                }
+                done = rule == null ? analysis.size() >= N_BATCHES : rule.shouldStop(analysis, batchCount);
             }
         }
 
         // 12) Stampa intervalli di confidenza globali (con ReplicationStats)
-        System.out.println("=== Intervalli di confidenza (95%) ===");
-        replicationStats.printAllConfidenceIntervals(0.05);
+        double alpha = 0.05;
+        if (warmup != null) {
+            warmup.printOutcome(BATCH_SIZE);
+        }
+        if (sizer != null) {
+            sizer.printOutcome(BATCH_SIZE);
+        }
+        if (subBatches != null) {
+            subBatches.printOutcome();
+        }
+        if (rule != null) {
+            rule.printOutcome(analysis);
+            alpha = rule.getAlpha();
+        }
+        System.out.printf("=== Intervalli di confidenza (%.0f%%) ===%n", (1 - alpha) * 100);
+        analysis.printAllConfidenceIntervals(alpha);
 
         System.out.println("=== Infinite Simulation – Fine ===");
     }
 
+    @Override
+    public boolean isDecoupled() {
+        return false;
+    }
+
     public void generateFeedback(MsqEvent event) {
-        if (event.postiRichiesti < 4) {
-            nodes.getFirst().setArrivalEvent(event);
-            nodes.getFirst().addNumber();
-        } else if (event.postiRichiesti == 4){
-            nodes.get(1).setArrivalEvent(event);
-            nodes.get(1).addNumber();
-        }else{
-            nodes.get(2).setArrivalEvent(event);
-            nodes.get(2).addNumber();
+        int target = FEEDBACK_TARGET[event.postiRichiesti];
+        if (channels != null) {
+            channels[target].send(event.t, event.postiRichiesti);
+        } else {
+            nodes.get(target).setArrivalEvent(event);
         }
     }
 }
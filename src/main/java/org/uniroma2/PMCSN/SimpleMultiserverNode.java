@@ -1,20 +1,29 @@
 package org.uniroma2.PMCSN;
 
-import org.uniroma2.PMCSN.Libs.Rngs;
+import org.uniroma2.PMCSN.Libs.RandomSource;
+import org.uniroma2.PMCSN.Libs.Sampler;
+import org.uniroma2.PMCSN.Libs.StreamBuffer;
 import org.uniroma2.PMCSN.Utils.ReplicationStats;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.BitSet;
 
-import static org.uniroma2.PMCSN.Libs.Distributions.*;
 
-public class SimpleMultiserverNode implements Node{
+public class SimpleMultiserverNode implements Node, Checkpointable<SimpleMultiserverNode.State> {
 
     private static final int ARRIVAL = 0;
     private final int SERVERS;
     private double sarrival;    // orario cumulato per gli arrivi
-    private final List<MsqEvent> event;   // event[0]=next arrival, [1..S]=server departures
-    private final MsqSum[] sum;       // statistiche per ogni server
+    // eventi in array paralleli: slot 0 = prossimo arrivo, 1..S = partenze dai server
+    private final double[] time;      // tempo dell'evento
+    private final byte[] active;      // 1 se l'evento è programmato
+    private final RequestQueue routed;  // arrivi da routing in attesa, in ordine di tempo
+    private final EventSet fel;       // lista eventi futuri del sistema
+    private final int base;           // primo slot del nodo nella FEL
+    private final int ROUTED;         // slot FEL del prossimo arrivo da routing
+    private final double[] service;   // servizio erogato da ogni server
+    private final long[] served;      // job serviti da ogni server
+    private final BitSet idle;        // bit s acceso se il server s è libero
     private final MsqT clock;
     private long number;        // job totali nel nodo (in servizio + in coda)
     private long index;         // contatore job processati
@@ -23,7 +32,11 @@ public class SimpleMultiserverNode implements Node{
     private double areaService; //area sotto la curva dei job in servizio
 
     private long queueJobs = 0;      // numero totale di job che hanno fatto coda
-    private final Rngs r;
+    private final RandomSource r;
+    private final int streamBase;     // primo stream RNG riservato al nodo
+    private final StreamBuffer loss;  // stream 2, estrazione della perdita
+    private final Sampler arrivals;   // tempi di interarrivo (stream 0)
+    private final Sampler services;   // tempi di servizio (stream 1)
     private final int centerIndex;
     private final Sistema system;
     private final ReplicationStats stats = new ReplicationStats();
@@ -34,10 +47,23 @@ public class SimpleMultiserverNode implements Node{
     private static final double P_SMALL = 0.6;
     private static final double P_MEDIUM = 0.2;
     private static final double P_LARGE = 0.2;
+    private static final Sampler SERVICE = Sampler.truncatedNormal(20.0, 10.0, 2, 60);
 
-    public SimpleMultiserverNode(Sistema system, int index, int servers, Rngs rng) {
+    public SimpleMultiserverNode(Sistema system, int index, int servers, RandomSource rng, EventSet fel) {
+        this(system, index, servers, rng, fel, null, null);
+    }
+
+    /**
+     * @param arrivals distribuzione degli interarrivi, null per l'esponenziale del modello
+     * @param services distribuzione dei servizi, null per la normale troncata del modello
+     */
+    public SimpleMultiserverNode(Sistema system, int index, int servers, RandomSource rng, EventSet fel,
+                                 Sampler arrivals, Sampler services) {
         this.SERVERS = servers;
+        this.ROUTED = servers + 1;
         this.r = rng;
+        this.streamBase = index * STREAMS_PER_NODE;
+        this.loss = new StreamBuffer(rng, streamBase + 2, RNG_BLOCK);
         this.sarrival = 0.0;
         this.number = 0;
         this.index = 0;
@@ -46,53 +72,66 @@ public class SimpleMultiserverNode implements Node{
         this.areaService = 0.0;
         this.centerIndex = index;
         this.system = system;
+        this.arrivals = arrivals != null ? arrivals : Sampler.exponential(1 / arrivalRate());
+        this.services = services != null ? services : SERVICE;
         this.lastTotalService = 0.0;
         this.clock = new MsqT();
+        this.fel = fel;
+        this.base = fel.register(this, servers + 2);
 
+        // eventi e somme (azzerati dall'allocazione)
+        time = new double[servers + 1];
+        active = new byte[servers + 1];
+        service = new double[servers + 1];
+        served = new long[servers + 1];
+        routed = new RequestQueue(16);
 
-        // eventi e somme
-        event = new ArrayList<>();
-        sum = new MsqSum[servers + 2];
-
-
-        for (int i = 0; i <= servers+1; i++) {
-            event.add(i, new MsqEvent());
-            sum[i] = new MsqSum();
-            event.get(i).x = 0;
-            sum[i].service = 0.0;
-            sum[i].served = 0;
-        }
+        idle = new BitSet(servers + 1);
+        idle.set(1, servers + 1);
 
         // schedulo il primo arrivo “esterno”
-        event.get(ARRIVAL).t = getNextArrivalTime();
-        event.get(ARRIVAL).x = 1;
+        time[ARRIVAL] = getNextArrivalTime();
+        active[ARRIVAL] = 1;
+        schedule(ARRIVAL);
     }
 
     // Espone il prossimo evento attivo
     public double peekNextEventTime() {
-        double tmin = Double.POSITIVE_INFINITY;
-        for (int i = 0; i < event.size(); i++)
-            if (event.get(i).x == 1 && event.get(i).t < tmin)
-                tmin = event.get(i).t;
+        double tmin = routed.isEmpty() ? Double.POSITIVE_INFINITY : routed.peekTime();
+        for (int i = 0; i <= SERVERS; i++)
+            if (active[i] == 1 && time[i] < tmin)
+                tmin = time[i];
         return tmin;
     }
 
     public int peekNextEventType() {
-        int best = -1;
-        double tmin = Double.POSITIVE_INFINITY;
-        for (int i = 0; i < event.size(); i++)
-            if (event.get(i).x == 1 && event.get(i).t < tmin) {
-                tmin = event.get(i).t;
+        int best = routed.isEmpty() ? -1 : ROUTED;
+        double tmin = routed.isEmpty() ? Double.POSITIVE_INFINITY : routed.peekTime();
+        for (int i = 0; i <= SERVERS; i++)
+            if (active[i] == 1 && (time[i] < tmin || (time[i] == tmin && best == ROUTED))) {
+                tmin = time[i];
                 best = i;
             }
         return best;
     }
 
+    // Programma nella FEL l'evento i con il suo tempo corrente
+    private void schedule(int i) {
+        fel.schedule(base + i, time[i]);
+    }
+
+    // Aggiorna lo slot ROUTED con il primo arrivo da routing in attesa
+    private void refreshRouted() {
+        if (routed.isEmpty()) fel.cancel(base + ROUTED);
+        else fel.schedule(base + ROUTED, routed.peekTime());
+    }
+
     // Avanza la simulazione di questo nodo fino all'evento scelto
     // e restituisce eventuale DEPARTURE schedulato (server index), oppure -1.
+    // Va invocato sul nodo proprietario della testa della FEL.
     public int processNextEvent(double t) {
-        int e = peekNextEventType();
-        clock.next = event.get(e).t;
+        int e = fel.peekEvent();
+        clock.next = e == ROUTED ? routed.peekTime() : time[e];
         // integrazione area (tutti i job nel sistema)
 
         // integrazione aree
@@ -111,32 +150,35 @@ public class SimpleMultiserverNode implements Node{
 
         clock.current = clock.next;
 
-        if (e == ARRIVAL || e>SERVERS) {
+        if (e == ARRIVAL || e == ROUTED) {
             if (e == ARRIVAL) {
                 // ARRIVAL “esterno” o da routing
                 number++;
                 // programma il prossimo ARRIVAL esterno
-                event.getFirst().t = getNextArrivalTime();
-                r.selectStream(2); /* stream per generare la p di loss */
-                double pLoss = r.random();
+                time[ARRIVAL] = getNextArrivalTime();
+                schedule(ARRIVAL);
+                double pLoss = loss.random(); /* stream per generare la p di loss */
                 if (pLoss < P_EXIT) {
                     number--;
                     return -1;
                 }
+            } else {
+                // arrivo da routing: entra nel nodo (in servizio o in coda)
+                number++;
+                routed.poll();
+                refreshRouted();
             }
 
             int srv = findOne();
             if (srv != -1) {
                 if (number > SERVERS) queueJobs++; // è in coda
                 double svc = getServiceTime();
-                event.get(srv).t = clock.current + svc;
-                event.get(srv).x = 1;
-                sum[srv].service += svc;
-                sum[srv].served++;
-                //se ho processato arrivo esterno lo elimino dalla coda degli eventi
-                if (e>SERVERS){
-                    event.remove(e);
-                }
+                time[srv] = clock.current + svc;
+                active[srv] = 1;
+                idle.clear(srv);
+                schedule(srv);
+                service[srv] += svc;
+                served[srv]++;
                 // non incremento number perché è in servizio, non in coda
                 return srv;
             }
@@ -149,12 +191,15 @@ public class SimpleMultiserverNode implements Node{
             // coda non vuota?
             if (number >= SERVERS) {
                 double svc = getServiceTime();
-                event.get(e).t = clock.current + svc;
-                sum[e].service += svc;
-                sum[e].served++;
+                time[e] = clock.current + svc;
+                schedule(e);
+                service[e] += svc;
+                served[e]++;
                 return e;
             } else {
-                event.get(e).x = 0;
+                active[e] = 0;
+                idle.set(e);
+                fel.cancel(base + e);
             }
         }
 
@@ -164,7 +209,14 @@ public class SimpleMultiserverNode implements Node{
 
 
     public double getNextArrivalTime() {
-        r.selectStream(0);
+        r.selectStream(streamBase);
+        sarrival += arrivals.sample(r);
+        /* System.out.println("Arrivo a:" + sarrival); */
+        return sarrival;
+    }
+
+    // tasso di arrivo del modello per questo centro
+    private double arrivalRate() {
         double lambda = 2.25;
 
         if(system instanceof SimpleSystem) {
@@ -182,38 +234,20 @@ public class SimpleMultiserverNode implements Node{
                 default -> System.out.println("Centro inesistente!");
             }
         }
-
-        sarrival += exponential(1/lambda, r);
-        /* System.out.println("Arrivo a:" + sarrival); */
-        return sarrival;
+        return lambda;
     }
 
 
-    //dovrebbe restituire valore gaussiana troncata tra a e b
+    // di default gaussiana N(20, 10) troncata tra a = 2 e b = 60
     public double getServiceTime() {
-        r.selectStream(1);
-        //return uniform(2.0, 10.0, r);
-        double alpha, beta;
-        double a = 2;
-        double b = 60;
-
-        alpha = cdfNormal(20.0, 10.0, a);
-        beta = cdfNormal(20.0, 10.0, b);
-
-        double u = uniform(alpha, beta, r);
-        /*System.out.println("Servizio:" + idfNormal(20.0, 10.0, u));*/
-        return idfNormal(20.0, 10.0, u);
-        //return exponential(20.0,r);
+        r.selectStream(streamBase + 1);
+        return services.sample(r);
     }
 
 
+    // server libero con indice più basso (stessa politica della scansione 1..SERVERS)
     public int findOne() {
-        for (int s = 1; s <= SERVERS; s++) {
-            if (event.get(s).x == 0) {
-                return s;
-            }
-        }
-        return -1;  // nessun server libero
+        return idle.nextSetBit(1);  // -1 se nessun server libero
     }
 
     /* Metodi per statistiche a fine run */
@@ -231,11 +265,8 @@ public class SimpleMultiserverNode implements Node{
     }
 
     public void setArrivalEvent(MsqEvent event) {
-        this.event.add(event);
-    }
-
-    public void addNumber() {
-        this.number++;
+        routed.add(event.t, event.postiRichiesti);
+        refreshRouted();
     }
 
     public double getAvgWaitingInQueue() {
@@ -271,7 +302,7 @@ public class SimpleMultiserverNode implements Node{
     public double getUtilization() {
         double busyTime = 0.0;
         for (int s = 1; s <= SERVERS; s++) {
-            busyTime += sum[s].service;
+            busyTime += service[s];
         }
         return busyTime / (SERVERS * clock.current);
     }
@@ -288,14 +319,14 @@ public class SimpleMultiserverNode implements Node{
     }
 
     /**
-     * Restituisce il servizio erogato (somma di sum[s].service) da
+     * Restituisce il servizio erogato (somma di service[s]) da
      * quando è stato registrato l'ultimo batch, e aggiorna il marcatore.
      */
     public double getIncrementalServiceTime() {
         // calcola il servizio totale corrente:
         double totalService = 0.0;
         for (int s = 1; s <= SERVERS; s++) {
-            totalService += sum[s].service;
+            totalService += service[s];
         }
         // differenza rispetto a quando è iniziato l'ultimo batch
         double delta = totalService - lastTotalService;
@@ -345,6 +376,75 @@ public class SimpleMultiserverNode implements Node{
         clock.current = t;
     }
 
+    /**
+     * Stato salvato del nodo per il rollback. Non comprende gli arrivi da
+     * routing in attesa: dopo restoreState vanno riconsegnati con
+     * setArrivalEvent quelli con tempo successivo a quello dello stato.
+     */
+    public static final class State {
+        private double sarrival, area, areaQueue, areaService, lastTotalService;
+        private double current, next;
+        private long number, index, queueJobs;
+        private double[] time, service;
+        private byte[] active;
+        private long[] served;
+        private final long[][] seeds = new long[STREAMS_PER_NODE][];
+    }
+
+    @Override
+    public State saveState() {
+        State s = new State();
+        s.sarrival = sarrival;
+        s.area = area;
+        s.areaQueue = areaQueue;
+        s.areaService = areaService;
+        s.lastTotalService = lastTotalService;
+        s.current = clock.current;
+        s.next = clock.next;
+        s.number = number;
+        s.index = index;
+        s.queueJobs = queueJobs;
+        s.time = time.clone();
+        s.active = active.clone();
+        s.service = service.clone();
+        s.served = served.clone();
+        for (int k = 0; k < STREAMS_PER_NODE; k++) {
+            s.seeds[k] = new long[r.stateSize()];
+            if (k == 2) loss.getState(s.seeds[k]);
+            else r.getState(streamBase + k, s.seeds[k]);
+        }
+        return s;
+    }
+
+    @Override
+    public void restoreState(State s) {
+        sarrival = s.sarrival;
+        area = s.area;
+        areaQueue = s.areaQueue;
+        areaService = s.areaService;
+        lastTotalService = s.lastTotalService;
+        clock.current = s.current;
+        clock.next = s.next;
+        number = s.number;
+        index = s.index;
+        queueJobs = s.queueJobs;
+        System.arraycopy(s.time, 0, time, 0, time.length);
+        System.arraycopy(s.active, 0, active, 0, active.length);
+        System.arraycopy(s.service, 0, service, 0, service.length);
+        System.arraycopy(s.served, 0, served, 0, served.length);
+        for (int i = 0; i <= SERVERS; i++) {
+            if (i > 0) idle.set(i, active[i] == 0);
+            if (active[i] == 1) schedule(i);
+            else fel.cancel(base + i);
+        }
+        for (int k = 0; k < STREAMS_PER_NODE; k++) {
+            if (k == 2) loss.setState(s.seeds[k]);
+            else r.setState(streamBase + k, s.seeds[k]);
+        }
+        routed.clear();
+        refreshRouted();
+    }
+
     /** Azzera tutti i contatori e le aree per una nuova replica */
     public void resetState() {
         this.number = 0;
@@ -355,14 +455,13 @@ public class SimpleMultiserverNode implements Node{
         this.clock.current = 0.0;
         this.clock.next = 0.0;
         this.lastTotalService = 0.0;
-        // reset sum[] per server
-        for (MsqSum s : sum) {
-            s.service = 0.0;
-            s.served = 0;
-        }
+        // reset somme per server
+        Arrays.fill(service, 0.0);
+        Arrays.fill(served, 0);
         /* reset event times: schedule il primo arrivo */
-        event.getFirst().t = getNextArrivalTime();
-        event.getFirst().x = 1;
+        time[ARRIVAL] = getNextArrivalTime();
+        active[ARRIVAL] = 1;
+        schedule(ARRIVAL);
         // per semplicità, non tocchiamo pendingArrivals qui
     }
 }
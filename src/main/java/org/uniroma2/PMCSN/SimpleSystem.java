@@ -1,12 +1,22 @@
 package org.uniroma2.PMCSN;
 
-import org.uniroma2.PMCSN.Libs.Rngs;
+import org.uniroma2.PMCSN.Estimators.EstimatorSet;
+import org.uniroma2.PMCSN.Estimators.VarianceEstimator;
+import org.uniroma2.PMCSN.Libs.RandomSource;
+import org.uniroma2.PMCSN.Utils.AdaptiveBatchMeans;
+import org.uniroma2.PMCSN.Utils.BatchSink;
 import org.uniroma2.PMCSN.Utils.FileCSVGenerator;
+import org.uniroma2.PMCSN.Utils.MserTruncation;
+import org.uniroma2.PMCSN.Utils.OutputAnalysis;
+import org.uniroma2.PMCSN.Utils.ReplicaReport;
 import org.uniroma2.PMCSN.Utils.ReplicationStats;
+import org.uniroma2.PMCSN.Utils.StoppingRule;
+import org.uniroma2.PMCSN.Utils.WarmupDeletion;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 public class SimpleSystem implements Sistema{
     private static final int NODES    = 3;
@@ -19,7 +29,14 @@ public class SimpleSystem implements Sistema{
     // Statistiche globali del sistema
     private final ReplicationStats   systemStats = new ReplicationStats();
 
+    private final SimulationConfig config;
+
     public SimpleSystem() {
+        this(new SimulationConfig());
+    }
+
+    public SimpleSystem(SimulationConfig config) {
+        this.config = config;
         for (int i = 0; i < NODES; i++) {
             nodeStats[i] = new ReplicationStats();
         }
@@ -129,137 +146,141 @@ public class SimpleSystem implements Sistema{
 
     @Override
     public void runFiniteSimulation() {
-        final double REPORT_INTERVAL = 50.0;
-        final double WARMUP          = 200.0;    // elimina primo transient
-
         // Prepara il CSV globale (solo header, una volta)
         FileCSVGenerator.writeFiniteIntervalGlobalHeader();
 
-        for (int rep = 1; rep <= REPLICAS; rep++) {
+        // Repliche indipendenti (eventualmente in parallelo), scritte in ordine
+        ReplicationRunner.run(config, REPLICAS, this::runReplica, ReplicaReport::write);
+    }
+
+    /** Esegue la replica rep ad orizzonte finito; non tocca stato condiviso. */
+    private ReplicaReport runReplica(int rep) {
+        final double REPORT_INTERVAL = 50.0;
+        final double WARMUP          = 200.0;    // elimina primo transient
+        // con MSER-5 si registra da subito: il warm-up viene scelto sulla traccia
+        final double FIRST_REPORT    = config.getWarmup() == SimulationConfig.Warmup.FIXED
+                ? WARMUP + REPORT_INTERVAL : REPORT_INTERVAL;
+
+        NodeTrace[] traces;
+        if (config.getEngine() != SimulationConfig.Engine.SEQUENTIAL && isDecoupled()) {
+            // Nodi disaccoppiati: ognuno su un proprio thread, con FEL e RNG propri
+            traces = IntStream.range(0, NODES).parallel()
+                    .mapToObj(i -> {
+                        RandomSource rng = config.newReplicaSource(rep);
+                        EventSet fel = config.newEventSet();
+                        SimpleMultiserverNode n = new SimpleMultiserverNode(this, i, SERVERS[i], rng, fel,
+                                config.getArrivalSampler(i), config.getServiceSampler(i));
+                        n.resetState();
+                        return NodeTrace.simulate(fel, List.of(n), FIRST_REPORT, REPORT_INTERVAL, STOP)[0];
+                    })
+                    .toArray(NodeTrace[]::new);
+        } else {
             // 1) Inizializza RNG
-            Rngs rng = new Rngs();
-            rng.plantSeeds(rep);
+            RandomSource rng = config.newReplicaSource(rep);
 
-            // 2) Crea tutti i nodi “puliti”
+            // 2) Crea tutti i nodi “puliti” e la lista eventi futuri condivisa
+            EventSet fel = config.newEventSet();
             List<SimpleMultiserverNode> localNodes = new ArrayList<>();
             for (int i = 0; i < NODES; i++) {
-                SimpleMultiserverNode n = new SimpleMultiserverNode(this, i, SERVERS[i], rng);
+                SimpleMultiserverNode n = new SimpleMultiserverNode(this, i, SERVERS[i], rng, fel,
+                        config.getArrivalSampler(i), config.getServiceSampler(i));
                 n.resetState();
                 localNodes.add(n);
             }
 
-            // 3) Imposta il primo report dopo warmup
-            double nextReportTime = WARMUP + REPORT_INTERVAL;
-
-            // 4) Ciclo principale di simulazione (eventi + reporting)
-            while (true) {
-                // Trova il prossimo evento tra tutti i nodi
-                double tmin = Double.POSITIVE_INFINITY;
-                int idxMin = -1;
-                for (int i = 0; i < localNodes.size(); i++) {
-                    double t = localNodes.get(i).peekNextEventTime();
-                    if (t < tmin) {
-                        tmin  = t;
-                        idxMin = i;
-                    }
-                }
-
-                // Se non ci sono più eventi utili e ho superato STOP e l’ultimo report
-                if (tmin > STOP && nextReportTime > STOP) {
-                    break;
-                }
-
-                // **Caso REPORT**: prima del prossimo evento e prima di STOP
-                if (nextReportTime <= tmin) {
-                    // 4.1) Integra tutti i nodi fino a nextReportTime
-                    for (SimpleMultiserverNode n : localNodes) {
-                        n.integrateTo(nextReportTime);
-                    }
-
-                    // 4.2) Calcola STATISTICHE GLOBALI
-                    double cumArea      = 0.0;
-                    long   cumJobs      = 0;
-                    double cumAreaQueue = 0.0;
-                    double cumRhoSum    = 0.0;
-
-                    for (SimpleMultiserverNode n : localNodes) {
-                        cumArea      += n.getArea();
-                        cumJobs      += n.getProcessedJobs();
-                        cumAreaQueue += n.getAreaQueue();
-                        cumRhoSum    += n.getUtilization();
-                    }
-                    double cumETs = cumJobs > 0 ? cumArea      / cumJobs      : 0.0;
-                    double cumENs =               cumArea      / nextReportTime;
-                    double cumETq = cumJobs > 0 ? cumAreaQueue / cumJobs      : 0.0;
-                    double cumENq =               cumAreaQueue / nextReportTime;
-                    double cumRho =               cumRhoSum    / localNodes.size();
-
-                    // 4.3) SCRIVE la riga GLOBALE
-                    FileCSVGenerator.writeFiniteIntervalGlobal(
-                            rep,
-                            nextReportTime,
-                            cumETs, cumENs, cumETq, cumENq, cumRho
-                    );
-
-                    // 4.4) Calcola e SCRIVE le righe per ciascun nodo
-                    for (int i = 0; i < localNodes.size(); i++) {
-                        SimpleMultiserverNode n = localNodes.get(i);
-
-                        double area_i  = n.getArea();
-                        long   jobs_i  = n.getProcessedJobs();
-                        double areaQ_i = n.getAreaQueue();
-
-                        double ETs_i = jobs_i > 0 ? area_i      / jobs_i      : 0.0;
-                        double ENs_i =               area_i      / nextReportTime;
-                        double ETq_i = jobs_i > 0 ? areaQ_i     / jobs_i      : 0.0;
-                        double ENq_i =               areaQ_i     / nextReportTime;
-                        double rho_i = n.getUtilization();
-
-                        FileCSVGenerator.writeIntervalData(
-                                true,              // finite
-                                rep,
-                                i,
-                                nextReportTime,
-                                ETs_i, ENs_i, ETq_i, ENq_i, rho_i
-                        );
-                    }
-
-                    // 4.5) Avanza il reporting
-                    nextReportTime += REPORT_INTERVAL;
-                    continue;
-                }
+            // 3) Ciclo principale di simulazione (eventi + reporting dopo il warmup)
+            traces = NodeTrace.simulate(fel, localNodes, FIRST_REPORT, REPORT_INTERVAL, STOP);
+        }
 
-                // **Caso EVENTO**: processo il prossimo evento
-                if (tmin <= STOP) {
-                    localNodes.get(idxMin).processNextEvent(tmin);
-                } else {
-                    break;
-                }
+        // 4) Eliminazione del warm-up scelto da MSER-5
+        MserTruncation mser = config.getWarmup() == SimulationConfig.Warmup.MSER5
+                ? NodeTrace.deleteWarmup(traces) : null;
+
+        // 5) Righe di report, globali e per nodo, a ogni tempo di report
+        ReplicaReport report = new ReplicaReport(rep);
+        for (int k = 0; k < traces[0].size(); k++) {
+            double t = traces[0].getTime(k);
+            double elapsed = t - traces[0].getStart();   // durata dopo il warm-up eliminato
+
+            // 5.1) Calcola STATISTICHE GLOBALI
+            double cumArea      = 0.0;
+            long   cumJobs      = 0;
+            double cumAreaQueue = 0.0;
+            double cumRhoSum    = 0.0;
+
+            for (NodeTrace n : traces) {
+                cumArea      += n.getArea(k);
+                cumJobs      += n.getJobs(k);
+                cumAreaQueue += n.getAreaQueue(k);
+                cumRhoSum    += n.getUtilization(k);
             }
-
-            // 5) Statistiche finali di replica (facoltative a console)
-            double respSum = 0.0;
-            for (SimpleMultiserverNode n : localNodes) {
-                respSum += n.getAvgResponse();
+            double cumETs = cumJobs > 0 ? cumArea      / cumJobs      : 0.0;
+            double cumENs =               cumArea      / elapsed;
+            double cumETq = cumJobs > 0 ? cumAreaQueue / cumJobs      : 0.0;
+            double cumENq =               cumAreaQueue / elapsed;
+            double cumRho =               cumRhoSum    / traces.length;
+
+            // 5.2) SCRIVE la riga GLOBALE
+            report.addGlobal(
+                    t,
+                    cumETs, cumENs, cumETq, cumENq, cumRho
+            );
+
+            // 5.3) Calcola e SCRIVE le righe per ciascun nodo
+            for (int i = 0; i < traces.length; i++) {
+                NodeTrace n = traces[i];
+
+                double area_i  = n.getArea(k);
+                long   jobs_i  = n.getJobs(k);
+                double areaQ_i = n.getAreaQueue(k);
+
+                double ETs_i = jobs_i > 0 ? area_i      / jobs_i      : 0.0;
+                double ENs_i =               area_i      / elapsed;
+                double ETq_i = jobs_i > 0 ? areaQ_i     / jobs_i      : 0.0;
+                double ENq_i =               areaQ_i     / elapsed;
+                double rho_i = n.getUtilization(k);
+
+                report.addInterval(
+                        i,
+                        t,
+                        ETs_i, ENs_i, ETq_i, ENq_i, rho_i
+                );
             }
-            System.out.printf("Replica %d – Avg response system-wide: %.5f%n",
-                    rep, respSum / localNodes.size());
         }
+
+        // 6) Statistiche finali di replica (facoltative a console)
+        double respSum = 0.0;
+        for (NodeTrace n : traces) {
+            respSum += n.getAvgResponse();
+        }
+        report.println(String.format("Replica %d – Avg response system-wide: %.5f",
+                rep, respSum / traces.length));
+        if (config.isAntithetic() && rep % 2 == 0) {
+            report.println("  (antitetica della replica " + (rep - 1) + ")");
+        }
+        if (mser != null) {
+            report.println(String.format("  Warm-up MSER-5: eliminati %d intervalli (t ≤ %.1f)%s",
+                    mser.truncation(), traces[0].getStart(),
+                    mser.isResolved() ? "" : ", minimo a metà orizzonte: transitorio forse non esaurito"));
+        }
+        return report;
     }
 
     @Override
     public void runInfiniteSimulation() {
         final int BATCH_SIZE = 256;
         final int N_BATCHES  = 64;
+        final int SUB_BATCHES = 16;   // sotto-batch per batch, per gli stimatori OBM/STS
 
         System.out.println("=== Infinite Simulation – Batch Means (Global + Per‑Node) ===");
-        Rngs rng = new Rngs();
-        rng.plantSeeds(1);
+        RandomSource rng = config.newReplicaSource(1);
 
-        // 1) Inizializza i nodi
+        // 1) Inizializza i nodi e la lista eventi futuri condivisa
+        EventSet fel = config.newEventSet();
         List<SimpleMultiserverNode> nodesLoc = new ArrayList<>();
         for (int i = 0; i < NODES; i++) {
-            nodesLoc.add(new SimpleMultiserverNode(this, i, SERVERS[i], rng));
+            nodesLoc.add(new SimpleMultiserverNode(this, i, SERVERS[i], rng, fel,
+                    config.getArrivalSampler(i), config.getServiceSampler(i)));
         }
 
         // 2) Prepara CSV globali e per‑nodo (header)
@@ -284,26 +305,44 @@ public class SimpleSystem implements Sistema{
 
         int batchCount = 0, jobsInBatch = 0;
         double startTimeBatch = 0.0, endTimeBatch = 0.0;
-
-        while (batchCount < N_BATCHES) {
+        // senza regola di arresto N_BATCHES fissi, altrimenti fino alla precisione richiesta
+        StoppingRule rule = config.getStoppingRule();
+        // i batch arrivano a systemStats passando per gli stadi attivi:
+        // eliminazione del warm-up, poi scelta della dimensione
+        AdaptiveBatchMeans sizer = config.isAdaptiveBatchSize() ? new AdaptiveBatchMeans(systemStats, N_BATCHES) : null;
+        BatchSink sink = sizer != null ? sizer : systemStats;
+        WarmupDeletion warmup = config.getWarmup() == SimulationConfig.Warmup.MSER5 ? new WarmupDeletion(sink) : null;
+        if (warmup != null) {
+            sink = warmup;
+        }
+        // OBM e STS usano sotto-batch di SUB_BATCH job processati (e della durata media
+        // corrispondente); partono quando warm-up e dimensione dei batch sono stabiliti
+        final int SUB_BATCH = BATCH_SIZE / SUB_BATCHES;
+        boolean subBatched = config.getEstimator() != VarianceEstimator.Type.BATCH_MEANS;
+        SubBatches subBatches = null;
+        OutputAnalysis analysis = systemStats;
+        boolean done = false;
+
+        while (!done) {
             // Trova il prossimo evento
-            double tnext = Double.POSITIVE_INFINITY;
-            int chosen = -1;
-            for (int i = 0; i < NODES; i++) {
-                double t = nodesLoc.get(i).peekNextEventTime();
-                if (t < tnext) {
-                    tnext = t;
-                    chosen = i;
-                }
-            }
+            double tnext = fel.peekTime();
+            Node chosen = fel.peekNode();
 
+            // Sotto-batch per tempo che terminano prima del prossimo evento (solo OBM/STS)
+            if (subBatches != null) {
+                subBatches.advanceTo(tnext);
+            }
             // Integra tutti i nodi
             for (SimpleMultiserverNode node : nodesLoc) {
                 node.integrateTo(tnext);
             }
 
             // Processa evento
-            int srv = nodesLoc.get(chosen).processNextEvent(tnext);
+            long processedBefore = chosen.getProcessedJobs();
+            int srv = chosen.processNextEvent(tnext);
+            if (subBatches != null) {
+                subBatches.processed(chosen.getProcessedJobs() - processedBefore);
+            }
             if (srv >= 0) {
                 if (jobsInBatch == 0) startTimeBatch = tnext;
                 jobsInBatch++;
@@ -341,7 +380,7 @@ public class SimpleSystem implements Sistema{
                 double batchRho = sumRhoGlobal / NODES;
 
                 // 👇 Salva nel ReplicationStats
-                systemStats.insert(batchETs, batchENs, batchETq, batchENq, batchRho);
+                sink.insert(batchETs, batchENs, batchETq, batchENq, batchRho);
 
                 // Cumulativi globali
                 cumETs += batchETs;
@@ -399,12 +438,34 @@ public class SimpleSystem implements Sistema{
                 lastAreaSys = areaSys;
                 lastAreaQueueSys = areaQueueSys;
                 jobsInBatch = 0;
+                if (subBatched && subBatches == null
+                        && (warmup == null || warmup.isDecided()) && (sizer == null || sizer.isAccepted())) {
+                    EstimatorSet estimators = new EstimatorSet(config.getEstimator(),
+                            SUB_BATCHES * (sizer != null ? sizer.getSize() : 1));
+                    subBatches = new SubBatches(nodesLoc, estimators, SUB_BATCH, tnext);
+                    analysis = estimators;
+                }
+                done = rule == null ? analysis.size() >= N_BATCHES : rule.shouldStop(analysis, batchCount);
             }
         }
 
         // --- Stampa finali: Intervalli di Confidenza 95%
-        System.out.println("=== Intervalli di confidenza (95%) ===");
-        systemStats.printAllConfidenceIntervals(0.05);
+        double alpha = 0.05;
+        if (warmup != null) {
+            warmup.printOutcome(BATCH_SIZE);
+        }
+        if (sizer != null) {
+            sizer.printOutcome(BATCH_SIZE);
+        }
+        if (subBatches != null) {
+            subBatches.printOutcome();
+        }
+        if (rule != null) {
+            rule.printOutcome(analysis);
+            alpha = rule.getAlpha();
+        }
+        System.out.printf("=== Intervalli di confidenza (%.0f%%) ===%n", (1 - alpha) * 100);
+        analysis.printAllConfidenceIntervals(alpha);
         System.out.println("=== Infinite Simulation – Fine ===");
     }
 
@@ -412,4 +473,10 @@ public class SimpleSystem implements Sistema{
     public void generateFeedback(MsqEvent event) {
         //non usato in questo sistema
     }
+
+    // I centri non si scambiano job: possono essere simulati separatamente
+    @Override
+    public boolean isDecoupled() {
+        return true;
+    }
 }
\ No newline at end of file
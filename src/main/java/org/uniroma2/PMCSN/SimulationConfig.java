@@ -0,0 +1,202 @@
+package org.uniroma2.PMCSN;
+
+import org.uniroma2.PMCSN.Estimators.VarianceEstimator;
+import org.uniroma2.PMCSN.Libs.AntitheticSource;
+import org.uniroma2.PMCSN.Libs.RandomSource;
+import org.uniroma2.PMCSN.Libs.Sampler;
+import org.uniroma2.PMCSN.Utils.StoppingRule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Opzioni di esecuzione scelte per un singolo run.
+ * I valori di default riproducono il comportamento originale dei sistemi.
+ */
+public class SimulationConfig {
+
+    /** Motore di esecuzione di una replica ad orizzonte finito. */
+    public enum Engine {
+        SEQUENTIAL,      // ciclo eventi unico su tutti i nodi
+        PARALLEL_NODES,  // un thread per nodo, solo per reti disaccoppiate
+        CONSERVATIVE,    // processi logici con null message, anche con feedback
+        OPTIMISTIC       // processi logici Time Warp con rollback
+    }
+
+    /** Eliminazione del transitorio iniziale. */
+    public enum Warmup {
+        FIXED,           // WARMUP fisso nelle repliche finite, nulla ad orizzonte infinito
+        MSER5            // troncamento scelto da MSER-5 in ogni replica e run
+    }
+
+    private EventSet.Type eventSet = EventSet.Type.HEAP;   // struttura della FEL
+    private RandomSource.Type generator = RandomSource.Type.LEHMER;  // generatore di numeri casuali
+    private long seed = 0;                 // la replica rep usa il seme seed + rep
+    private boolean antithetic = false;    // repliche a coppie, la seconda con 1 - u
+    // esecuzione delle repliche ad orizzonte finito
+    private ReplicationRunner.Mode replicationMode = ReplicationRunner.Mode.PLATFORM_THREADS;
+    private int replicationThreads = Runtime.getRuntime().availableProcessors();
+    private Engine engine = Engine.SEQUENTIAL;
+    private Warmup warmup = Warmup.FIXED;
+    private RideSharingMultiserverNode.MatchingPolicy matchingPolicy =
+            RideSharingMultiserverNode.MatchingPolicy.GREEDY;
+    private int rideServers = RideSharingMultiserverNode.DEFAULT_SERVERS;  // veicoli per centro ride-sharing
+    // arresto del run ad orizzonte infinito: null per il numero fisso di batch
+    private StoppingRule stoppingRule = null;
+    // dimensione dei batch scelta dall'autocorrelazione invece che fissa
+    private boolean adaptiveBatchSize = false;
+    // stimatore della varianza per gli intervalli ad orizzonte infinito
+    private VarianceEstimator.Type estimator = VarianceEstimator.Type.BATCH_MEANS;
+    // distribuzioni per centro (indice del nodo); se assenti il nodo usa quelle del modello
+    private final Map<Integer, Sampler> arrivalSamplers = new HashMap<>();
+    private final Map<Integer, Sampler> serviceSamplers = new HashMap<>();
+
+    public EventSet.Type getEventSet() {
+        return eventSet;
+    }
+
+    public void setEventSet(EventSet.Type eventSet) {
+        this.eventSet = eventSet;
+    }
+
+    public RandomSource.Type getGenerator() {
+        return generator;
+    }
+
+    public void setGenerator(RandomSource.Type generator) {
+        this.generator = generator;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public boolean isAntithetic() {
+        return antithetic;
+    }
+
+    public void setAntithetic(boolean antithetic) {
+        this.antithetic = antithetic;
+    }
+
+    public ReplicationRunner.Mode getReplicationMode() {
+        return replicationMode;
+    }
+
+    public void setReplicationMode(ReplicationRunner.Mode replicationMode) {
+        this.replicationMode = replicationMode;
+    }
+
+    public int getReplicationThreads() {
+        return replicationThreads;
+    }
+
+    public void setReplicationThreads(int replicationThreads) {
+        this.replicationThreads = replicationThreads;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    public Warmup getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(Warmup warmup) {
+        this.warmup = warmup;
+    }
+
+    public RideSharingMultiserverNode.MatchingPolicy getMatchingPolicy() {
+        return matchingPolicy;
+    }
+
+    public void setMatchingPolicy(RideSharingMultiserverNode.MatchingPolicy matchingPolicy) {
+        this.matchingPolicy = matchingPolicy;
+    }
+
+    public int getRideServers() {
+        return rideServers;
+    }
+
+    public void setRideServers(int rideServers) {
+        this.rideServers = rideServers;
+    }
+
+    public StoppingRule getStoppingRule() {
+        return stoppingRule;
+    }
+
+    public void setStoppingRule(StoppingRule stoppingRule) {
+        this.stoppingRule = stoppingRule;
+    }
+
+    public boolean isAdaptiveBatchSize() {
+        return adaptiveBatchSize;
+    }
+
+    public void setAdaptiveBatchSize(boolean adaptiveBatchSize) {
+        this.adaptiveBatchSize = adaptiveBatchSize;
+    }
+
+    public VarianceEstimator.Type getEstimator() {
+        return estimator;
+    }
+
+    public void setEstimator(VarianceEstimator.Type estimator) {
+        this.estimator = estimator;
+    }
+
+    /** Distribuzione degli interarrivi del centro, null se è quella del modello. */
+    public Sampler getArrivalSampler(int center) {
+        return arrivalSamplers.get(center);
+    }
+
+    public void setArrivalSampler(int center, Sampler sampler) {
+        arrivalSamplers.put(center, sampler);
+    }
+
+    /** Distribuzione dei servizi del centro, null se è quella del modello. */
+    public Sampler getServiceSampler(int center) {
+        return serviceSamplers.get(center);
+    }
+
+    public void setServiceSampler(int center, Sampler sampler) {
+        serviceSamplers.put(center, sampler);
+    }
+
+    /** Crea una nuova lista eventi futuri del tipo configurato. */
+    public EventSet newEventSet() {
+        return EventSet.create(eventSet);
+    }
+
+    /**
+     * Generatore della replica rep (da 1). Ogni nodo usa uno stream per scopo
+     * (arrivi, servizi, perdita, ...): configurazioni diverse con lo stesso
+     * seed usano quindi, replica per replica, gli stessi numeri per lo stesso
+     * scopo (numeri casuali comuni). Con antithetic le repliche vanno a coppie
+     * (1-2, 3-4, ...) e la seconda ripete il seme della prima con 1 - u.
+     */
+    public RandomSource newReplicaSource(int rep) {
+        if (!antithetic) {
+            return newRandomSource(seed + rep);
+        }
+        RandomSource rng = newRandomSource(seed + (rep + 1) / 2);
+        return rep % 2 == 0 ? new AntitheticSource(rng) : rng;
+    }
+
+    /** Crea un generatore del tipo configurato, inizializzato con seed. */
+    public RandomSource newRandomSource(long seed) {
+        RandomSource rng = RandomSource.create(generator);
+        rng.plantSeeds(seed);
+        return rng;
+    }
+}
@@ -4,4 +4,7 @@ public interface Sistema {
     void runFiniteSimulation();
     void runInfiniteSimulation();
     void generateFeedback(MsqEvent event);
+
+    /** true se i nodi non si scambiano mai job (generateFeedback non usato). */
+    boolean isDecoupled();
 }
@@ -0,0 +1,104 @@
+package org.uniroma2.PMCSN;
+
+import org.uniroma2.PMCSN.Estimators.EstimatorSet;
+
+import java.util.List;
+
+/**
+ * Sotto-batch del run ad orizzonte infinito che alimentano gli stimatori
+ * OBM/STS.
+ * <p>
+ * Le metriche per job (ETs, ETq) si chiudono ogni {@code jobs} job
+ * processati, quelle per tempo (ENs, ENq, Rho) ogni {@code interval} unità
+ * di tempo, integrando i nodi fino al confine. Così ogni valore è un'area
+ * divisa per un denominatore (quasi) costante: con sotto-batch brevi la
+ * media di rapporti con denominatore casuale sarebbe distorta di O(1/jobs).
+ * L'intervallo è il tempo medio di {@code jobs} job nel run fino alla
+ * creazione.
+ */
+public final class SubBatches {
+    private final List<? extends Node> nodes;
+    private final EstimatorSet estimators;
+    private final int jobs;
+    private final double interval;
+
+    // sotto-batch per job
+    private long processed;
+    private long jobMark;
+    private double jobArea, jobAreaQueue;
+
+    // sotto-batch per tempo
+    private double nextTime;
+    private double timeArea, timeAreaQueue;
+    private final double[] busy;        // utilizzazione · t di ciascun nodo al confine precedente
+
+    /** Parte al tempo now, con tutti i nodi già integrati fino a now. */
+    public SubBatches(List<? extends Node> nodes, EstimatorSet estimators, int jobs, double now) {
+        this.nodes = nodes;
+        this.estimators = estimators;
+        this.jobs = jobs;
+        this.busy = new double[nodes.size()];
+
+        double area = 0.0, areaQueue = 0.0;
+        for (int i = 0; i < busy.length; i++) {
+            Node n = nodes.get(i);
+            area      += n.getArea();
+            areaQueue += n.getAreaQueue();
+            processed += n.getProcessedJobs();
+            busy[i]    = n.getUtilization() * now;
+        }
+        if (processed == 0) {
+            throw new IllegalStateException("Nessun job processato: impossibile stimare la durata dei sotto-batch");
+        }
+        this.interval = now * jobs / processed;
+        jobMark  = processed;
+        jobArea  = timeArea = area;
+        jobAreaQueue = timeAreaQueue = areaQueue;
+        nextTime = now + interval;
+    }
+
+    /** Chiude i sotto-batch per tempo che terminano entro t; va chiamato prima di integrare i nodi a t. */
+    public void advanceTo(double t) {
+        while (nextTime <= t) {
+            double area = 0.0, areaQueue = 0.0, util = 0.0;
+            for (int i = 0; i < busy.length; i++) {
+                Node n = nodes.get(i);
+                n.integrateTo(nextTime);
+                area      += n.getArea();
+                areaQueue += n.getAreaQueue();
+                double b = n.getUtilization() * nextTime;
+                util     += (b - busy[i]) / interval;
+                busy[i]   = b;
+            }
+            estimators.insertPerTime(
+                    (area - timeArea) / interval,
+                    (areaQueue - timeAreaQueue) / interval,
+                    util / busy.length);
+            timeArea      = area;
+            timeAreaQueue = areaQueue;
+            nextTime     += interval;
+        }
+    }
+
+    /** Registra delta job processati dall'ultimo evento (nodi integrati fino al suo tempo). */
+    public void processed(long delta) {
+        processed += delta;
+        if (processed - jobMark < jobs) {
+            return;
+        }
+        double area = 0.0, areaQueue = 0.0;
+        for (Node n : nodes) {
+            area      += n.getArea();
+            areaQueue += n.getAreaQueue();
+        }
+        long dj = processed - jobMark;
+        estimators.insertPerJob((area - jobArea) / dj, (areaQueue - jobAreaQueue) / dj);
+        jobMark      = processed;
+        jobArea      = area;
+        jobAreaQueue = areaQueue;
+    }
+
+    public void printOutcome() {
+        estimators.printOutcome(jobs, interval);
+    }
+}
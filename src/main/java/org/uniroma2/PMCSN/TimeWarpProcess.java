@@ -0,0 +1,159 @@
+package org.uniroma2.PMCSN;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+
+/**
+ * Processo logico ottimistico (Time Warp) per un nodo che riceve job da un
+ * Channel: processa i propri eventi senza attendere il mittente e, se arriva
+ * un messaggio con tempo non successivo all'ultimo evento processato
+ * (straggler), torna all'ultimo stato salvato anteriore e riesegue.
+ * <p>
+ * Lo stato del nodo viene salvato ogni CHECKPOINT_INTERVAL eventi. I messaggi
+ * ricevuti restano in un log ordinato per tempo, da cui vengono riconsegnati
+ * dopo un rollback. L'orizzonte del canale fa da GVT: nessun messaggio futuro
+ * ha tempo inferiore, quindi stati e messaggi anteriori vengono scartati
+ * (fossil collection). Il nodo non invia messaggi, quindi i rollback non si
+ * propagano e non servono anti-messaggi.
+ */
+public final class TimeWarpProcess<S> implements Callable<NodeTrace> {
+    private static final int CHECKPOINT_INTERVAL = 32;
+
+    // stato salvato del processo: nodo, report e ultimo tempo processato
+    private record Checkpoint<S>(S state, double time, int reports, double nextReportTime) {}
+
+    private final Node node;
+    private final Checkpointable<S> states;
+    private final EventSet fel;
+    private final Channel input;
+    private final double firstReport;
+    private final double interval;
+    private final double stop;
+
+    private final ArrayDeque<Checkpoint<S>> checkpoints = new ArrayDeque<>();
+    private final RequestQueue log = new RequestQueue(16);     // messaggi ricevuti, per tempo
+    private final RequestQueue inbox = new RequestQueue(16);   // messaggi appena ricevuti
+    private final MsqEvent delivery = new MsqEvent();
+    private NodeTrace trace;
+    private double lastTime;        // tempo dell'ultimo evento o report processato
+    private double nextReportTime;
+    private long rollbacks = 0;
+
+    public <N extends Node & Checkpointable<S>> TimeWarpProcess(N node, EventSet fel, Channel input,
+                                                               double firstReport, double interval, double stop) {
+        this.node = node;
+        this.states = node;
+        this.fel = fel;
+        this.input = input;
+        this.firstReport = firstReport;
+        this.interval = interval;
+        this.stop = stop;
+    }
+
+    @Override
+    public NodeTrace call() throws InterruptedException {
+        trace = new NodeTrace(NodeTrace.reportCount(firstReport, interval, stop));
+        lastTime = Double.NEGATIVE_INFINITY;
+        nextReportTime = firstReport;
+        save();
+
+        int events = 0;
+        while (true) {
+            double gvt = receive();
+
+            double tmin = fel.peekTime();
+            double tnext = Math.min(tmin, nextReportTime);
+            if (tnext > stop) {
+                // fine solo quando il mittente non può più inviare job entro STOP
+                if (gvt >= stop) break;
+                input.awaitBeyond(gvt);
+                continue;
+            }
+
+            if (nextReportTime <= tmin) {
+                node.integrateTo(nextReportTime);
+                trace.record(nextReportTime, node);
+                lastTime = nextReportTime;
+                nextReportTime += interval;
+            } else {
+                node.processNextEvent(tmin);
+                lastTime = tmin;
+            }
+            if (++events % CHECKPOINT_INTERVAL == 0) save();
+        }
+
+        trace.close(node);
+        return trace;
+    }
+
+    /** Numero di rollback eseguiti. */
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    /**
+     * Riceve i nuovi messaggi: consegna quelli nel futuro del nodo e
+     * fa rollback se ce n'è uno nel passato, poi esegue la fossil collection.
+     *
+     * @return l'orizzonte del canale (GVT)
+     */
+    private double receive() {
+        double gvt = input.drainTo(inbox);
+        double straggler = Double.POSITIVE_INFINITY;
+        while (!inbox.isEmpty()) {
+            double t = inbox.peekTime();
+            int posti = inbox.peekPosti();
+            inbox.poll();
+            log.add(t, posti);
+            if (t <= lastTime) {
+                straggler = Math.min(straggler, t);
+            } else {
+                deliver(t, posti);
+            }
+        }
+        if (straggler < Double.POSITIVE_INFINITY) rollback(straggler);
+        fossilCollect(gvt);
+        return gvt;
+    }
+
+    // Torna all'ultimo stato con tempo anteriore a t e riconsegna i messaggi successivi
+    private void rollback(double t) {
+        rollbacks++;
+        while (checkpoints.getLast().time() >= t) {
+            checkpoints.removeLast();
+        }
+        Checkpoint<S> c = checkpoints.getLast();
+        states.restoreState(c.state());
+        trace.truncate(c.reports());
+        lastTime = c.time();
+        nextReportTime = c.nextReportTime();
+        for (int k = 0; k < log.size(); k++) {
+            if (log.getTime(k) > lastTime) deliver(log.getTime(k), log.getPosti(k));
+        }
+    }
+
+    // Basta il più recente stato non successivo al GVT: i messaggi futuri sono oltre
+    private void fossilCollect(double gvt) {
+        while (checkpoints.size() > 1) {
+            Checkpoint<S> first = checkpoints.removeFirst();
+            if (checkpoints.getFirst().time() > gvt) {
+                checkpoints.addFirst(first);
+                break;
+            }
+        }
+        double oldest = checkpoints.getFirst().time();
+        while (!log.isEmpty() && log.peekTime() <= oldest) {
+            log.poll();
+        }
+    }
+
+    private void save() {
+        checkpoints.addLast(new Checkpoint<>(states.saveState(), lastTime, trace.size(), nextReportTime));
+    }
+
+    private void deliver(double t, int posti) {
+        delivery.t = t;
+        delivery.postiRichiesti = posti;
+        node.setArrivalEvent(delivery);
+    }
+}
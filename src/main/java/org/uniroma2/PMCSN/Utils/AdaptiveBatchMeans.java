@@ -0,0 +1,150 @@
+package org.uniroma2.PMCSN.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Scelta automatica della dimensione dei batch per la simulazione ad
+ * orizzonte infinito.
+ * <p>
+ * Riceve i batch "base" prodotti dal ciclo di simulazione e ne tiene in
+ * memoria al più {@code batches} per metrica, qualunque sia la durata del run.
+ * Quando il buffer è pieno stima l'autocorrelazione lag-1 delle medie: se
+ * supera il limite della normale al 95% ({@code z / √batches}) fonde i batch
+ * adiacenti a coppie, raddoppiando la dimensione, e continua a riempire il
+ * buffer. Appena i batch risultano approssimativamente indipendenti la
+ * dimensione viene fissata: i batch in memoria passano a ReplicationStats e
+ * i successivi, della stessa dimensione, vi arrivano direttamente.
+ * <p>
+ * Il test riguarda ETs, ENs, ETq ed ENq: Rho è l'utilizzazione cumulativa
+ * dall'inizio del run, quindi una media mobile sempre correlata. I batch sono
+ * fusi con pesi uguali, esatto per le metriche per job (stesso numero di
+ * completamenti per batch) e un'approssimazione per quelle per tempo.
+ */
+public final class AdaptiveBatchMeans implements BatchSink {
+    // raddoppi massimi prima di fissare comunque la dimensione
+    public static final int MAX_DOUBLINGS = 8;
+
+    private static final double Z_95 = 1.6448536269514722;
+    private static final int METRICS = 5;
+    private static final int TESTED  = 4;
+
+    private final ReplicationStats stats;
+    private final int batches;
+    private final double limit;
+    private final double[][] means;                   // [metrica][batch]
+    private final double[] partial = new double[METRICS];
+    private int merged = 0;                           // batch base nel batch in corso
+    private int count = 0;                            // batch completi in memoria
+    private int size = 1;                             // batch base per batch
+    private int doublings = 0;
+    private boolean accepted = false;
+    private double lag1 = Double.NaN;
+
+    /**
+     * @param stats   destinazione dei batch di dimensione accettata
+     * @param batches batch tenuti in memoria e usati per il test (pari, ≥ 4)
+     */
+    public AdaptiveBatchMeans(ReplicationStats stats, int batches) {
+        if (batches < 4 || batches % 2 != 0) {
+            throw new IllegalArgumentException("Numero di batch non valido: " + batches);
+        }
+        this.stats = stats;
+        this.batches = batches;
+        this.limit = Z_95 / Math.sqrt(batches);
+        this.means = new double[METRICS][batches];
+    }
+
+    /** Aggiunge i batch-means di un batch base. */
+    @Override
+    public void insert(double eTs, double eNs, double eTq, double eNq, double rho) {
+        partial[0] += eTs;
+        partial[1] += eNs;
+        partial[2] += eTq;
+        partial[3] += eNq;
+        partial[4] += rho;
+        if (++merged < size) {
+            return;
+        }
+
+        if (accepted) {
+            stats.insert(partial[0] / size, partial[1] / size, partial[2] / size,
+                    partial[3] / size, partial[4] / size);
+        } else {
+            for (int k = 0; k < METRICS; k++) {
+                means[k][count] = partial[k] / size;
+            }
+            count++;
+        }
+        Arrays.fill(partial, 0.0);
+        merged = 0;
+
+        if (!accepted && count == batches) {
+            test();
+        }
+    }
+
+    private void test() {
+        lag1 = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < TESTED; k++) {
+            lag1 = Math.max(lag1, lag1(means[k]));
+        }
+
+        if (lag1 <= limit || doublings == MAX_DOUBLINGS) {
+            accepted = true;
+            for (int i = 0; i < count; i++) {
+                stats.insert(means[0][i], means[1][i], means[2][i], means[3][i], means[4][i]);
+            }
+            return;
+        }
+
+        // batch troppo correlati: fusione a coppie e dimensione doppia
+        for (double[] m : means) {
+            for (int i = 0; i < batches / 2; i++) {
+                m[i] = (m[2 * i] + m[2 * i + 1]) / 2.0;
+            }
+        }
+        count = batches / 2;
+        size *= 2;
+        doublings++;
+    }
+
+    /** Autocorrelazione lag-1 campionaria; 0 per una serie costante. */
+    private static double lag1(double[] x) {
+        double mean = 0.0;
+        for (double v : x) {
+            mean += v;
+        }
+        mean /= x.length;
+
+        double num = 0.0, den = 0.0;
+        for (int i = 0; i < x.length; i++) {
+            double d = x[i] - mean;
+            den += d * d;
+            if (i > 0) {
+                num += d * (x[i - 1] - mean);
+            }
+        }
+        return den > 0.0 ? num / den : 0.0;
+    }
+
+    /** true quando la dimensione dei batch è stata fissata. */
+    public boolean isAccepted() {
+        return accepted;
+    }
+
+    /** Batch base contenuti in un batch. */
+    public int getSize() {
+        return size;
+    }
+
+    /** Stampa la dimensione scelta e l'autocorrelazione che l'ha giustificata. */
+    public void printOutcome(int baseSize) {
+        if (!accepted) {
+            System.out.printf("Batch size adattivo: non ancora fissato (attuale %d)%n", baseSize * size);
+            return;
+        }
+        System.out.printf("Batch size adattivo: %d (autocorrelazione lag-1 %.3f, limite %.3f)%s%n",
+                baseSize * size, lag1, limit,
+                lag1 > limit ? " – raddoppi esauriti, batch ancora correlati" : "");
+    }
+}
@@ -1,29 +1,29 @@
 package org.uniroma2.PMCSN.Utils;
 
 public class BatchMeans {
-    private static int nBatch = 1;
-    private static int nJonInBatch = 0;
+    private int nBatch = 1;
+    private int nJonInBatch = 0;
 
-    public static void incrementNBatch(){
+    public void incrementNBatch(){
         nBatch++;
     }
 
-    public static void incrementJobInBatch(){
+    public void incrementJobInBatch(){
         nJonInBatch++;
     }
 
-    public static int getJobInBatch(){
+    public int getJobInBatch(){
         return nJonInBatch;
     }
 
-    public static int getNBatch(){
+    public int getNBatch(){
         return nBatch;
     }
 
-    public static void resetJobInBatch(){
+    public void resetJobInBatch(){
         nJonInBatch = 0;
     }
-    public static void resetNBatch(){
+    public void resetNBatch(){
         nBatch = 1;
     }
 }
@@ -0,0 +1,12 @@
+package org.uniroma2.PMCSN.Utils;
+
+/**
+ * Destinazione dei batch-means globali della simulazione ad orizzonte
+ * infinito: le statistiche finali oppure uno stadio intermedio (warm-up,
+ * dimensione adattiva) che le inoltra.
+ */
+public interface BatchSink {
+
+    /** Inserisce i batch-means globali di un singolo batch. */
+    void insert(double eTs, double eNs, double eTq, double eNq, double rho);
+}
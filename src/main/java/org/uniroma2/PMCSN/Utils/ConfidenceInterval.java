@@ -1,6 +1,5 @@
 package org.uniroma2.PMCSN.Utils;
 
-import org.uniroma2.PMCSN.Libs.Rvms;
 import java.util.List;
 
 /**
@@ -14,30 +13,40 @@ public class ConfidenceInterval {
      *
      * @param data  lista delle osservazioni
      * @param alpha significatività (es. 0.05 → IC95%)
-     * @param rvms  istanza di Rvms per idfStudent(df, p)
      * @return array {lower, upper}
      */
-    public static double[] compute(List<Double> data, double alpha, Rvms rvms) {
-        int n = data.size();
-        if (n < 2) {
-            throw new IllegalArgumentException("Servono ≥2 osservazioni per l'intervallo.");
-        }
-
-        // 1) Calcolo media e varianza con Welford
+    public static double[] compute(List<Double> data, double alpha) {
         Welford w = new Welford();
         for (double x : data) {
             w.accept(x);
         }
-        double mean   = w.getMean();
-        double stdDev = Math.sqrt(w.getSampleVariance());
+        return compute(w, alpha);
+    }
 
-        // 2) Trova t* per (1−α/2) con df = n−1
-        double p     = 1 - alpha / 2.0;
-        double tStar = rvms.idfStudent(n - 1, p);
+    /**
+     * Calcola l'intervallo [lower, upper] al livello (1–α)×100% dalle
+     * osservazioni già accumulate in w.
+     *
+     * @return array {lower, upper}
+     */
+    public static double[] compute(Welford w, double alpha) {
+        double mean   = w.getMean();
+        double margin = halfWidth(w, alpha);
+        return new double[]{ mean - margin, mean + margin };
+    }
 
-        // 3) Calcola il margine
-        double margin = tStar * stdDev / Math.sqrt(n);
+    /**
+     * Semiampiezza dell'intervallo (1–α)×100% per le osservazioni in w.
+     */
+    public static double halfWidth(Welford w, double alpha) {
+        long n = w.count();
+        if (n < 2) {
+            throw new IllegalArgumentException("Servono ≥2 osservazioni per l'intervallo.");
+        }
+        double stdDev = Math.sqrt(w.getSampleVariance());
 
-        return new double[]{ mean - margin, mean + margin };
+        // t* per (1−α/2) con df = n−1 (quantili in cache)
+        double tStar = StudentQuantiles.idfStudent(n - 1, 1 - alpha / 2.0);
+        return tStar * stdDev / Math.sqrt(n);
     }
 }
@@ -0,0 +1,96 @@
+package org.uniroma2.PMCSN.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Scelta del punto di troncamento del warm-up con la regola MSER-m
+ * (K. P. White, "An effective truncation heuristic for bias reduction in
+ * simulation output", Simulation, 1997).
+ * <p>
+ * Le osservazioni sono raggruppate in medie di m consecutive (m = 5 per
+ * MSER-5); eliminando i primi d gruppi degli n raccolti la statistica è
+ * <pre>  MSER(d) = Σ_{i&gt;d} (Y_i − Ȳ_d)² / (n − d)²</pre>
+ * e il troncamento scelto è il d che la minimizza fra 0 e n/2. Un minimo
+ * sul bordo n/2 indica che la serie non si è ancora stabilizzata: servono
+ * altri dati (online) oppure il warm-up non si esaurisce nell'orizzonte.
+ * <p>
+ * Sono tenute in memoria solo le medie dei gruppi; il calcolo del minimo
+ * costa O(n) ed è ripetuto solo quando si chiude un nuovo gruppo.
+ */
+public final class MserTruncation {
+    public static final int MSER_5 = 5;
+
+    private final int m;
+    private double[] groups = new double[64];
+    private int n = 0;                  // gruppi completi
+    private double partial = 0.0;
+    private int inPartial = 0;
+    private int best = -1;              // argmin per gli n gruppi attuali, -1 se da ricalcolare
+
+    public MserTruncation() {
+        this(MSER_5);
+    }
+
+    public MserTruncation(int m) {
+        if (m < 1) {
+            throw new IllegalArgumentException("Dimensione dei gruppi non valida: " + m);
+        }
+        this.m = m;
+    }
+
+    /**
+     * Aggiunge un'osservazione della serie.
+     *
+     * @return true se l'osservazione chiude un gruppo
+     */
+    public boolean accept(double x) {
+        partial += x;
+        if (++inPartial < m) {
+            return false;
+        }
+        if (n == groups.length) {
+            groups = Arrays.copyOf(groups, 2 * n);
+        }
+        groups[n++] = partial / m;
+        partial = 0.0;
+        inPartial = 0;
+        best = -1;
+        return true;
+    }
+
+    /** Numero di gruppi completi raccolti. */
+    public int groups() {
+        return n;
+    }
+
+    /** Punto di troncamento in osservazioni (multiplo di m). */
+    public int truncation() {
+        return argmin() * m;
+    }
+
+    /** true se il minimo cade prima di metà serie: il warm-up è esaurito nei dati raccolti. */
+    public boolean isResolved() {
+        return n >= 2 && argmin() < n / 2;
+    }
+
+    private int argmin() {
+        if (best >= 0 || n == 0) {
+            return Math.max(best, 0);
+        }
+        // somme dei gruppi d..n-1, accumulate dal fondo
+        double sum = 0.0, sumSq = 0.0, min = Double.POSITIVE_INFINITY;
+        for (int d = n - 1; d >= 0; d--) {
+            sum   += groups[d];
+            sumSq += groups[d] * groups[d];
+            if (d <= n / 2) {
+                int k = n - d;
+                double mser = Math.max(sumSq - sum * sum / k, 0.0) / ((double) k * k);
+                if (mser <= min) {             // a parità, il troncamento più corto
+                    min = mser;
+                    best = d;
+                }
+            }
+        }
+        return best;
+    }
+}
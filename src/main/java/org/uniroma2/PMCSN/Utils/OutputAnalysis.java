@@ -0,0 +1,39 @@
+package org.uniroma2.PMCSN.Utils;
+
+/**
+ * Intervalli di confidenza delle cinque metriche globali di un run ad
+ * orizzonte infinito, qualunque sia lo stimatore della varianza usato.
+ */
+public interface OutputAnalysis {
+
+    /** Le metriche globali, nell'ordine in cui vengono stampate. */
+    enum Metric {
+        ETS("ETs"), ENS("ENs"), ETQ("ETq"), ENQ("ENq"), RHO("Rho");
+
+        private final String label;
+
+        Metric(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /** Numero di batch (non sovrapposti) raccolti. */
+    long size();
+
+    /** Stima puntuale della metrica. */
+    double getMean(Metric metric);
+
+    /**
+     * Semiampiezza dell'intervallo (1−α)×100% della metrica.
+     *
+     * @throws IllegalArgumentException se i dati non bastano per una stima
+     */
+    double halfWidth(Metric metric, double alpha);
+
+    /** Stampa tutti e cinque gli intervalli. */
+    void printAllConfidenceIntervals(double alpha);
+}
@@ -0,0 +1,53 @@
+package org.uniroma2.PMCSN.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Raccoglie in memoria le righe CSV e i messaggi a console di una replica,
+ * così che repliche eseguite in parallelo possano essere scritte dopo,
+ * nello stesso ordine del run sequenziale.
+ */
+public class ReplicaReport {
+    private static final int GLOBAL = -2;     // riga di finite_interval_global.csv
+    private static final int MESSAGE = -3;    // riga di console
+
+    private record Entry(int center, double[] values, String line) {}
+
+    private final long seed;
+    private final List<Entry> entries = new ArrayList<>();
+
+    public ReplicaReport(long seed) {
+        this.seed = seed;
+    }
+
+    /** Riga di finite_interval_global.csv (vedi FileCSVGenerator.writeFiniteIntervalGlobal). */
+    public void addGlobal(double time, double eTs, double eNs, double eTq, double eNq, double rho) {
+        entries.add(new Entry(GLOBAL, new double[]{time, eTs, eNs, eTq, eNq, rho}, null));
+    }
+
+    /** Riga di finite_interval_center&lt;X&gt;.csv (vedi FileCSVGenerator.writeIntervalData). */
+    public void addInterval(int centerIndex, double time,
+                            double eTs, double eNs, double eTq, double eNq, double rho) {
+        entries.add(new Entry(centerIndex, new double[]{time, eTs, eNs, eTq, eNq, rho}, null));
+    }
+
+    /** Messaggio da stampare a console. */
+    public void println(String line) {
+        entries.add(new Entry(MESSAGE, null, line));
+    }
+
+    /** Scrive righe e messaggi nell'ordine in cui sono stati registrati. */
+    public void write() {
+        for (Entry e : entries) {
+            double[] v = e.values();
+            if (e.center() == MESSAGE) {
+                System.out.println(e.line());
+            } else if (e.center() == GLOBAL) {
+                FileCSVGenerator.writeFiniteIntervalGlobal(seed, v[0], v[1], v[2], v[3], v[4], v[5]);
+            } else {
+                FileCSVGenerator.writeIntervalData(true, seed, e.center(), v[0], v[1], v[2], v[3], v[4], v[5]);
+            }
+        }
+    }
+}
@@ -1,50 +1,62 @@
 package org.uniroma2.PMCSN.Utils;
 
-import org.uniroma2.PMCSN.Libs.Rvms;
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Raccoglie batch-means globali di simulazione e stampa
  * un set di intervalli di confidenza usando ConfidenceInterval.
+ * <p>
+ * Ogni metrica è un accumulatore Welford: la memoria non cresce con il
+ * numero di batch.
  */
-public class ReplicationStats {
-    private final List<Double> responseTimes = new ArrayList<>();
-    private final List<Double> avgInNode      = new ArrayList<>();
-    private final List<Double> waitingTimes   = new ArrayList<>();
-    private final List<Double> avgInQueue     = new ArrayList<>();
-    private final List<Double> utilizations   = new ArrayList<>();
-    private final Rvms rvms = new Rvms();
+public class ReplicationStats implements BatchSink, OutputAnalysis {
+    private final Welford responseTimes = new Welford();
+    private final Welford avgInNode     = new Welford();
+    private final Welford waitingTimes  = new Welford();
+    private final Welford avgInQueue    = new Welford();
+    private final Welford utilizations  = new Welford();
+    private final Welford[] metrics = {responseTimes, avgInNode, waitingTimes, avgInQueue, utilizations};
 
     /** Inserisce i batch-means globali di un singolo batch. */
+    @Override
     public void insert(double eTs, double eNs, double eTq, double eNq, double rho) {
-        responseTimes.add(eTs);
-        avgInNode.   add(eNs);
-        waitingTimes.add(eTq);
-        avgInQueue.  add(eNq);
-        utilizations.add(rho);
+        responseTimes.accept(eTs);
+        avgInNode.   accept(eNs);
+        waitingTimes.accept(eTq);
+        avgInQueue.  accept(eNq);
+        utilizations.accept(rho);
+    }
+
+    /** Numero di batch inseriti. */
+    @Override
+    public long size() {
+        return responseTimes.count();
+    }
+
+    @Override
+    public double getMean(Metric metric) {
+        return metrics[metric.ordinal()].getMean();
+    }
+
+    @Override
+    public double halfWidth(Metric metric, double alpha) {
+        return ConfidenceInterval.halfWidth(metrics[metric.ordinal()], alpha);
     }
 
     /**
      * Stampa l'intervallo di confidenza (1−α)×100% per una metrica.
      *
      * @param name  etichetta
-     * @param data  lista di valori
+     * @param data  osservazioni accumulate
      * @param alpha significatività
      */
-    public void printConfidenceInterval(String name, List<Double> data, double alpha) {
+    public void printConfidenceInterval(String name, Welford data, double alpha) {
         try {
-            double[] interval = ConfidenceInterval.compute(data, alpha, rvms);
-            // ricalcolo media per stampare il margine
-            Welford w = new Welford();
-            data.forEach(w::accept);
-            double mean   = w.getMean();
-            double margin = (interval[1] - interval[0]) / 2.0;
+            double mean   = data.getMean();
+            double margin = ConfidenceInterval.halfWidth(data, alpha);
 
             System.out.printf(
                     "%-5s : %.4f ± %.4f → IC%.0f%% = [%.4f, %.4f]%n",
                     name, mean, margin, (1 - alpha) * 100,
-                    interval[0], interval[1]
+                    mean - margin, mean + margin
             );
         } catch (IllegalArgumentException ex) {
             System.out.printf("%-5s : dati insufficienti per IC%n", name);
@@ -52,11 +64,12 @@ public class ReplicationStats {
     }
 
     /** Stampa tutti e cinque gli intervalli con un solo richiamo. */
+    @Override
     public void printAllConfidenceIntervals(double alpha) {
         printConfidenceInterval("ETs", responseTimes, alpha);
-        printConfidenceInterval("ENs", avgInNode,      alpha);
-        printConfidenceInterval("ETq", waitingTimes,   alpha);
-        printConfidenceInterval("ENq", avgInQueue,     alpha);
-        printConfidenceInterval("Rho", utilizations,   alpha);
+        printConfidenceInterval("ENs", avgInNode,     alpha);
+        printConfidenceInterval("ETq", waitingTimes,  alpha);
+        printConfidenceInterval("ENq", avgInQueue,    alpha);
+        printConfidenceInterval("Rho", utilizations,  alpha);
     }
 }
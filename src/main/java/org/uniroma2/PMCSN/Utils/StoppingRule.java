@@ -0,0 +1,161 @@
+package org.uniroma2.PMCSN.Utils;
+
+import org.uniroma2.PMCSN.Utils.OutputAnalysis.Metric;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Regola di arresto sequenziale per la simulazione ad orizzonte infinito:
+ * il run termina appena gli intervalli di confidenza di tutte le metriche
+ * raggiungono la precisione richiesta, oppure quando esaurisce il budget
+ * di maxBatches batch.
+ * <p>
+ * Il budget si conta in batch base, quelli di dimensione fissa prodotti dal
+ * ciclo di simulazione (warm-up compreso), così limita i job simulati
+ * qualunque sia l'analisi: con la dimensione adattiva o con OBM/STS un batch
+ * dell'analisi contiene più batch base. minBatches si conta invece sui batch
+ * dell'analisi, quelli su cui sono calcolati gli intervalli.
+ * <p>
+ * Ogni metrica ha il proprio target: una semiampiezza al più relative volte
+ * la media, oppure al più absolute, oppure nessun requisito. Un target
+ * assoluto serve per le metriche con media vicina a zero (ad es. ETq ed ENq
+ * a basso carico), per le quali un target relativo può richiedere un numero
+ * di batch enorme. La regola non viene valutata prima di minBatches batch,
+ * per non fermarsi su poche osservazioni che per caso sembrano concordi.
+ */
+public final class StoppingRule {
+    public static final int DEFAULT_MIN_BATCHES = 32;
+    public static final double DEFAULT_ALPHA = 0.05;
+
+    /** Target di precisione di una metrica; un valore ≤ 0 non è richiesto. */
+    public record Target(double relative, double absolute) {
+        public static final Target NONE = new Target(0.0, 0.0);
+
+        public static Target relative(double relative) {
+            return new Target(relative, 0.0);
+        }
+
+        public static Target absolute(double absolute) {
+            return new Target(0.0, absolute);
+        }
+
+        public boolean isRequired() {
+            return relative > 0 || absolute > 0;
+        }
+
+        /** true se l'intervallo mean ± halfWidth rispetta il target. */
+        public boolean isMet(double mean, double halfWidth) {
+            return !isRequired()
+                    || (relative > 0 && halfWidth <= relative * Math.abs(mean))
+                    || (absolute > 0 && halfWidth <= absolute);
+        }
+
+        @Override
+        public String toString() {
+            if (relative > 0) {
+                return String.format("±%.2f%%", relative * 100);
+            }
+            return absolute > 0 ? String.format("±%.4f", absolute) : "non richiesto";
+        }
+    }
+
+    private final double alpha;
+    private final Target[] targets;
+    private final int minBatches;
+    private final int maxBatches;
+
+    /**
+     * @param targets    un target per metrica, nell'ordine di {@link Metric}
+     * @param minBatches batch dell'analisi prima di valutare la regola
+     * @param maxBatches budget in batch base
+     */
+    public StoppingRule(double alpha, Target[] targets, int minBatches, int maxBatches) {
+        if (targets.length != Metric.values().length) {
+            throw new IllegalArgumentException("Serve un target per ciascuna delle "
+                    + Metric.values().length + " metriche");
+        }
+        if (Arrays.stream(targets).noneMatch(Target::isRequired)) {
+            throw new IllegalArgumentException("Serve almeno un target di precisione positivo");
+        }
+        if (minBatches < 2 || maxBatches < minBatches) {
+            throw new IllegalArgumentException("Budget di batch non valido: " + minBatches + ".." + maxBatches);
+        }
+        this.alpha = alpha;
+        this.targets = targets.clone();
+        this.minBatches = minBatches;
+        this.maxBatches = maxBatches;
+    }
+
+    /** IC95% con semiampiezza relativa ≤ relative per tutte le metriche, entro maxBatches batch base. */
+    public static StoppingRule relative(double relative, int maxBatches) {
+        Target[] targets = new Target[Metric.values().length];
+        Arrays.fill(targets, Target.relative(relative));
+        return new StoppingRule(DEFAULT_ALPHA, targets, DEFAULT_MIN_BATCHES, maxBatches);
+    }
+
+    /**
+     * true se il run deve terminare.
+     *
+     * @param stats       batch raccolti dall'analisi
+     * @param baseBatches batch base simulati finora, warm-up compreso
+     */
+    public boolean shouldStop(OutputAnalysis stats, long baseBatches) {
+        return baseBatches >= maxBatches || (stats.size() >= minBatches && isMet(stats));
+    }
+
+    /** true se ogni metrica rispetta il proprio target. */
+    public boolean isMet(OutputAnalysis stats) {
+        return unmet(stats).isEmpty();
+    }
+
+    // metriche che non rispettano ancora il proprio target
+    private List<Metric> unmet(OutputAnalysis stats) {
+        List<Metric> unmet = new ArrayList<>();
+        for (Metric m : Metric.values()) {
+            Target target = targets[m.ordinal()];
+            if (!target.isRequired()) {
+                continue;
+            }
+            try {
+                if (!target.isMet(stats.getMean(m), stats.halfWidth(m, alpha))) {
+                    unmet.add(m);
+                }
+            } catch (IllegalArgumentException ex) {
+                unmet.add(m);
+            }
+        }
+        return unmet;
+    }
+
+    /** Stampa dopo quanti batch il run si è fermato e perché. */
+    public void printOutcome(OutputAnalysis stats) {
+        List<Metric> unmet = unmet(stats);
+        if (unmet.isEmpty()) {
+            System.out.printf("Precisione richiesta raggiunta dopo %d batch dell'analisi%n", stats.size());
+            return;
+        }
+        StringBuilder missing = new StringBuilder();
+        for (Metric m : unmet) {
+            missing.append(missing.isEmpty() ? "" : ", ")
+                    .append(m.getLabel()).append(' ').append(targets[m.ordinal()]);
+        }
+        System.out.printf("Budget di %d batch base esaurito (%d batch dell'analisi): "
+                        + "precisione richiesta non raggiunta per %s%n",
+                maxBatches, stats.size(), missing);
+    }
+
+    public double getAlpha() {
+        return alpha;
+    }
+
+    public Target getTarget(Metric metric) {
+        return targets[metric.ordinal()];
+    }
+
+    /** Budget in batch base. */
+    public int getMaxBatches() {
+        return maxBatches;
+    }
+}
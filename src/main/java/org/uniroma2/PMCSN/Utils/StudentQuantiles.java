@@ -0,0 +1,72 @@
+package org.uniroma2.PMCSN.Utils;
+
+import org.uniroma2.PMCSN.Libs.Distributions;
+import org.uniroma2.PMCSN.Libs.Rvms;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Quantili della t di Student con cache per (df, p).
+ * <p>
+ * Per df ≤ TABLE_DF il valore è quello esatto di Rvms.idfStudent, letto da
+ * una tabella per p: le tabelle dei livelli usuali (IC 90%, 95%, 99%) sono
+ * calcolate al caricamento della classe, le altre per intero al primo uso
+ * di p e pubblicate solo a calcolo finito, quindi i lettori non vedono mai
+ * una tabella parziale. Per df più grandi si usa l'espansione di
+ * Cornish-Fisher attorno al quantile normale (Abramowitz-Stegun 26.7.5),
+ * che da df = TABLE_DF differisce da Rvms.idfStudent meno della tolleranza
+ * di quest'ultimo (1e-10).
+ */
+public final class StudentQuantiles {
+    private static final int TABLE_DF = 1000;
+
+    // p -> quantili per df = 1..TABLE_DF (indice 0 inutilizzato)
+    private static final ConcurrentHashMap<Double, double[]> TABLES = new ConcurrentHashMap<>();
+
+    static {
+        for (double p : new double[]{0.95, 0.975, 0.995}) {
+            TABLES.put(p, table(p));
+        }
+    }
+
+    private StudentQuantiles() {
+    }
+
+    /**
+     * Quantile di ordine p della t di Student con df gradi di libertà.
+     *
+     * @param df gradi di libertà, ≥ 1
+     * @param p  probabilità, 0 < p < 1
+     */
+    public static double idfStudent(long df, double p) {
+        if (df > TABLE_DF) {
+            return cornishFisher(df, p);
+        }
+        if (df < 1) {
+            throw new IllegalArgumentException("Gradi di libertà non validi: " + df);
+        }
+        // computeIfAbsent inserisce la tabella solo dopo averla riempita
+        return TABLES.computeIfAbsent(p, StudentQuantiles::table)[(int) df];
+    }
+
+    private static double[] table(double p) {
+        Rvms rvms = new Rvms();
+        double[] table = new double[TABLE_DF + 1];
+        table[0] = Double.NaN;
+        for (int df = 1; df <= TABLE_DF; df++) {
+            table[df] = rvms.idfStudent(df, p);
+        }
+        return table;
+    }
+
+    private static double cornishFisher(long df, double p) {
+        double z = Distributions.idfStandardFast(p);
+        double z2 = z * z;
+        double g1 = (z2 + 1) * z / 4;
+        double g2 = ((5 * z2 + 16) * z2 + 3) * z / 96;
+        double g3 = (((3 * z2 + 19) * z2 + 17) * z2 - 15) * z / 384;
+        double g4 = ((((79 * z2 + 776) * z2 + 1482) * z2 - 1920) * z2 - 945) * z / 92160;
+        double v = df;
+        return z + (g1 + (g2 + (g3 + g4 / v) / v) / v) / v;
+    }
+}
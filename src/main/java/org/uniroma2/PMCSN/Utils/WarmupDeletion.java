@@ -0,0 +1,68 @@
+package org.uniroma2.PMCSN.Utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Eliminazione online del warm-up nella simulazione ad orizzonte infinito.
+ * <p>
+ * I batch restano in attesa mentre la serie di ENs passa a MSER-5: a ogni
+ * gruppo chiuso, raccolti almeno MIN_GROUPS gruppi, se il minimo di MSER cade
+ * nella prima metà della serie i batch prima del troncamento vengono scartati
+ * e i restanti inoltrati a next, come tutti i successivi. Dopo MAX_GROUPS
+ * gruppi il troncamento viene accettato comunque.
+ */
+public final class WarmupDeletion implements BatchSink {
+    public static final int MIN_GROUPS = 10;
+    public static final int MAX_GROUPS = 400;
+
+    private final BatchSink next;
+    private final MserTruncation mser = new MserTruncation();
+    private final List<double[]> pending = new ArrayList<>();
+    private int deleted = -1;           // batch scartati, -1 finché non deciso
+    private boolean resolved = false;
+
+    public WarmupDeletion(BatchSink next) {
+        this.next = next;
+    }
+
+    @Override
+    public void insert(double eTs, double eNs, double eTq, double eNq, double rho) {
+        if (deleted >= 0) {
+            next.insert(eTs, eNs, eTq, eNq, rho);
+            return;
+        }
+        pending.add(new double[]{eTs, eNs, eTq, eNq, rho});
+        if (!mser.accept(eNs)) {
+            return;
+        }
+        int g = mser.groups();
+        if (g < MIN_GROUPS || (!mser.isResolved() && g < MAX_GROUPS)) {
+            return;
+        }
+
+        resolved = mser.isResolved();
+        deleted = mser.truncation();
+        for (int i = deleted; i < pending.size(); i++) {
+            double[] b = pending.get(i);
+            next.insert(b[0], b[1], b[2], b[3], b[4]);
+        }
+        pending.clear();
+    }
+
+    /** true quando il troncamento è stato scelto e i batch passano a next. */
+    public boolean isDecided() {
+        return deleted >= 0;
+    }
+
+    /** Stampa quanti batch sono stati scartati come warm-up. */
+    public void printOutcome(int batchSize) {
+        if (deleted < 0) {
+            System.out.printf("Warm-up MSER-5: non ancora determinato (%d batch in attesa)%n", pending.size());
+            return;
+        }
+        System.out.printf("Warm-up MSER-5: scartati %d batch (%d completamenti)%s%n",
+                deleted, deleted * batchSize,
+                resolved ? "" : " – serie non stabilizzata dopo " + MAX_GROUPS + " gruppi");
+    }
+}
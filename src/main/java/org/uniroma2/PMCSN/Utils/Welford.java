@@ -3,9 +3,11 @@ package org.uniroma2.PMCSN.Utils;
 /**
  * Algoritmo di Welford per il calcolo in streaming
  * di media e varianza campionaria (doff = 1).
+ * <p>
+ * Occupa memoria costante qualunque sia il numero di osservazioni.
  */
 public class Welford {
-    private int count = 0;
+    private long count = 0;
     private double mean = 0.0;
     private double m2 = 0.0;
 
@@ -22,12 +24,12 @@ public class Welford {
     /**
      * Numero di osservazioni accumulate.
      */
-    public int count() {
+    public long count() {
         return count;
     }
 
     /**
-     * bitor la media campionaria corrente.
+     * Ritorna la media campionaria corrente.
      */
     public double getMean() {
         return mean;